@@ -0,0 +1,146 @@
+package com.terra.framework.autoconfigure.bedrock.config.batch;
+
+import com.terra.framework.autoconfigure.bedrock.properties.batch.BatchProperties;
+import com.terra.framework.common.util.concurrent.DrainReport;
+import com.terra.framework.common.util.concurrent.Drainable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 应用关闭时统一排空容器中的 {@link Drainable}（批处理器、管道、窗口聚合、链路追踪收集器等）.
+ * <p>
+ * 在 Web 服务器停止之后执行：按排空阶段从大到小依次排空，同一阶段的组件并行排空，所有阶段共享一个总期限；
+ * 排空后组件不再接收消息，之后写入的消息计入丢弃. 每个组件的写入、失败、丢弃与剩余消息数记录在日志中，
+ * 随后的 Bean 销毁只需处理剩余的少量消息.
+ *
+ * @author yangwt
+ */
+@Slf4j
+public class BatchDrainCoordinator implements SmartLifecycle {
+
+    private final ListableBeanFactory beanFactory;
+
+    private final BatchProperties.DrainConfig config;
+
+    private volatile boolean running;
+
+    private volatile List<DrainReport> lastReports = Collections.emptyList();
+
+    public BatchDrainCoordinator(ListableBeanFactory beanFactory, BatchProperties.DrainConfig config) {
+        this.beanFactory = beanFactory;
+        this.config = config;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        try {
+            lastReports = drainAll();
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return config.getPhase();
+    }
+
+    /**
+     * 最近一次排空的报告
+     */
+    public List<DrainReport> getLastReports() {
+        return lastReports;
+    }
+
+    private List<DrainReport> drainAll() {
+        long start = System.nanoTime();
+        long deadline = start + config.getTimeout().toNanos();
+        // 不触发懒加载 Bean 的初始化，未创建的组件无需排空
+        Map<String, Drainable> beans = beanFactory.getBeansOfType(Drainable.class, false, false);
+        TreeMap<Integer, List<Drainable>> phases = new TreeMap<>(Collections.reverseOrder());
+        for (Drainable drainable : beans.values()) {
+            phases.computeIfAbsent(drainable.getDrainPhase(), k -> new ArrayList<>()).add(drainable);
+        }
+        List<DrainReport> reports = new ArrayList<>();
+        for (List<Drainable> phase : phases.values()) {
+            reports.addAll(drainPhase(phase, deadline));
+        }
+        long flushed = 0;
+        long failed = 0;
+        long dropped = 0;
+        long remaining = 0;
+        for (DrainReport report : reports) {
+            flushed += report.flushed();
+            failed += report.failed();
+            dropped += report.dropped();
+            remaining += report.remaining();
+            if (report.isComplete()) {
+                log.info("排空完成[{}]，写入:{}，失败:{}，丢弃:{}，耗时:{}ms", report.name(), report.flushed(), report.failed(),
+                    report.dropped(), report.elapsed().toMillis());
+            } else {
+                log.warn("排空超时[{}]，写入:{}，失败:{}，丢弃:{}，剩余:{}，在途批次:{}", report.name(), report.flushed(),
+                    report.failed(), report.dropped(), report.remaining(), report.inFlightBatches());
+            }
+        }
+        log.info("批处理排空结束，组件数:{}，写入:{}，失败:{}，丢弃:{}，剩余:{}，耗时:{}ms", reports.size(), flushed, failed,
+            dropped, remaining, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return List.copyOf(reports);
+    }
+
+    /**
+     * 并行排空同一阶段的组件，每个组件在独立的虚拟线程中执行
+     */
+    private List<DrainReport> drainPhase(List<Drainable> phase, long deadline) {
+        List<CompletableFuture<DrainReport>> futures = new ArrayList<>(phase.size());
+        for (Drainable drainable : phase) {
+            CompletableFuture<DrainReport> future = new CompletableFuture<>();
+            Thread.ofVirtual().name("terra-batch-drain-" + drainable.getName()).start(() -> {
+                try {
+                    future.complete(drainable.drain(Duration.ofNanos(Math.max(0L, deadline - System.nanoTime()))));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            futures.add(future);
+        }
+        List<DrainReport> reports = new ArrayList<>(phase.size());
+        for (int i = 0; i < phase.size(); i++) {
+            Drainable drainable = phase.get(i);
+            try {
+                // 组件自身按期限返回，额外等待一秒用于收尾
+                long wait = Math.max(0L, deadline - System.nanoTime()) + TimeUnit.SECONDS.toNanos(1);
+                reports.add(futures.get(i).get(wait, TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("排空被中断[{}]", drainable.getName());
+            } catch (ExecutionException e) {
+                log.error("排空异常[{}]", drainable.getName(), e.getCause());
+            } catch (TimeoutException e) {
+                log.warn("排空未在期限内返回[{}]", drainable.getName());
+            }
+        }
+        return reports;
+    }
+}
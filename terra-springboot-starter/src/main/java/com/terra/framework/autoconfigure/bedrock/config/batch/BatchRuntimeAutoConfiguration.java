@@ -0,0 +1,91 @@
+package com.terra.framework.autoconfigure.bedrock.config.batch;
+
+import com.terra.framework.autoconfigure.bedrock.config.log.LogAutoConfiguration;
+import com.terra.framework.autoconfigure.bedrock.properties.batch.BatchProperties;
+import com.terra.framework.common.log.LogPattern;
+import com.terra.framework.common.util.concurrent.AbstractBatchProcess;
+import com.terra.framework.common.util.concurrent.BatchRuntime;
+import com.terra.framework.common.util.concurrent.pipeline.Pipeline;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+import java.util.function.Consumer;
+
+/**
+ * 批处理共享运行时自动配置，容器中的 {@link AbstractBatchProcess} 与 {@link Pipeline} 在初始化前切换到该运行时，
+ * 应用关闭时由 {@link BatchDrainCoordinator} 统一排空
+ *
+ * @author yangwt
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(BatchProperties.class)
+@AutoConfigureAfter(LogAutoConfiguration.class)
+public class BatchRuntimeAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public BatchRuntime batchRuntime(BatchProperties batchProperties, LogPattern logPattern) {
+        BatchRuntime batchRuntime = new BatchRuntime(batchProperties.getRuntime());
+        logPattern.formalize("自动装配 Terra batchRuntime 成功");
+        return batchRuntime;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "terra.batch.drain", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public BatchDrainCoordinator batchDrainCoordinator(ListableBeanFactory beanFactory, BatchProperties batchProperties) {
+        return new BatchDrainCoordinator(beanFactory, batchProperties.getDrain());
+    }
+
+    @Bean
+    public static BatchRuntimeAttacher batchRuntimeAttacher(ObjectProvider<BatchRuntime> batchRuntime) {
+        return new BatchRuntimeAttacher(batchRuntime);
+    }
+
+    /**
+     * 将仍使用进程级共享运行时的批处理器切换到容器中的运行时，已显式指定运行时的不受影响；
+     * 未命名的批处理器以 Bean 名称命名，作为指标标签
+     */
+    static class BatchRuntimeAttacher implements BeanPostProcessor {
+
+        private final ObjectProvider<BatchRuntime> batchRuntime;
+
+        BatchRuntimeAttacher(ObjectProvider<BatchRuntime> batchRuntime) {
+            this.batchRuntime = batchRuntime;
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            if (bean instanceof AbstractBatchProcess<?> process) {
+                if (!process.isNamed()) {
+                    process.setName(beanName);
+                }
+                if (process.getBatchRuntime() == BatchRuntime.shared()) {
+                    attach(process::setBatchRuntime);
+                }
+            } else if (bean instanceof Pipeline<?> pipeline && pipeline.getBatchRuntime() == BatchRuntime.shared()) {
+                attach(pipeline::setBatchRuntime);
+            }
+            return bean;
+        }
+
+        private void attach(Consumer<BatchRuntime> target) {
+            BatchRuntime runtime = batchRuntime.getIfAvailable();
+            if (runtime == null) {
+                return;
+            }
+            try {
+                target.accept(runtime);
+            } catch (IllegalStateException e) {
+                // 在 @Bean 方法中已开始调度的批处理器继续使用共享运行时
+            }
+        }
+    }
+}
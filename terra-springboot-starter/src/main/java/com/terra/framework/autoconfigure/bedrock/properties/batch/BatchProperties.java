@@ -0,0 +1,49 @@
+package com.terra.framework.autoconfigure.bedrock.properties.batch;
+
+import com.terra.framework.common.util.concurrent.BatchRuntimeConfig;
+import lombok.Data;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+import java.time.Duration;
+
+/**
+ * 批处理配置
+ *
+ * @author yangwt
+ */
+@Data
+@ConfigurationProperties(prefix = "terra.batch")
+public class BatchProperties {
+
+    /**
+     * 所有批处理器共享的定时器与工作线程池
+     */
+    @NestedConfigurationProperty
+    private BatchRuntimeConfig runtime = new BatchRuntimeConfig();
+
+    /**
+     * 应用关闭时统一排空批处理器
+     */
+    private DrainConfig drain = new DrainConfig();
+
+    @Data
+    public static class DrainConfig {
+
+        /**
+         * 是否启用排空协调
+         */
+        private boolean enabled = true;
+
+        /**
+         * 所有组件排空的总期限
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * 排空协调器的生命周期阶段，默认晚于 Web 服务器停止，保证排空时已没有新的请求
+         */
+        private int phase = SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
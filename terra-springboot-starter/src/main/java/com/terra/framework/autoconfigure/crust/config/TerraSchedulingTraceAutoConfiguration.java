@@ -2,6 +2,8 @@ package com.terra.framework.autoconfigure.crust.config;
 
 import com.terra.framework.autoconfigure.crust.properties.TerraScheduledTaskTraceProperties;
 import com.terra.framework.autoconfigure.crust.trace.TraceContextHolder;
+import com.terra.framework.bedrock.trace.CurrentTraceContext;
+import com.terra.framework.bedrock.trace.TraceContext;
 import com.terra.framework.bedrock.trace.TraceIdGenerator;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -31,13 +33,9 @@ public class TerraSchedulingTraceAutoConfiguration {
             TraceIdGenerator traceIdGenerator,
             TraceContextHolder traceContextHolder) {
         return runnable -> () -> {
-            String traceId = traceIdGenerator.generate();
-            String spanId = traceIdGenerator.generate();
-            try {
-                traceContextHolder.setTrace(traceId, spanId, null);
+            TraceContext context = TraceContext.of(traceIdGenerator.generate(), traceIdGenerator.generateSpanId(), null);
+            try (CurrentTraceContext.Scope ignored = traceContextHolder.open(context)) {
                 runnable.run();
-            } finally {
-                traceContextHolder.clear();
             }
         };
     }
@@ -3,20 +3,35 @@ package com.terra.framework.autoconfigure.crust.config;
 import com.terra.framework.autoconfigure.bedrock.config.log.LogAutoConfiguration;
 import com.terra.framework.autoconfigure.crust.filter.TerraTraceFilter;
 import com.terra.framework.autoconfigure.crust.properties.TerraTraceProperties;
+import com.terra.framework.autoconfigure.crust.trace.OtlpHttpSpanExporter;
+import com.terra.framework.autoconfigure.crust.trace.SpanExporter;
+import com.terra.framework.autoconfigure.crust.trace.SpanRingStore;
+import com.terra.framework.autoconfigure.crust.trace.SpanStoreController;
 import com.terra.framework.autoconfigure.crust.trace.TraceContextHolder;
 import com.terra.framework.autoconfigure.crust.trace.TraceDataCollector;
+import com.terra.framework.autoconfigure.crust.trace.TraceSampler;
 import com.terra.framework.bedrock.trace.TraceHelper;
 import com.terra.framework.bedrock.trace.TraceIdGenerator;
-import com.terra.framework.bedrock.trace.UUIDTraceIdGenerator;
+import com.terra.framework.bedrock.trace.RandomTraceIdGenerator;
+import com.terra.framework.bedrock.trace.propagation.TracePropagator;
 import com.terra.framework.common.log.LogPattern;
+import com.terra.framework.common.util.concurrent.BatchProcessConfig;
+import com.terra.framework.common.util.concurrent.OverflowPolicy;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @AutoConfiguration
 @EnableConfigurationProperties(TerraTraceProperties.class)
@@ -25,8 +40,8 @@ public class TerraTraceAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public TraceIdGenerator traceIdGenerator() {
-        return new UUIDTraceIdGenerator();
+    public TraceIdGenerator traceIdGenerator(TerraTraceProperties traceProperties) {
+        return new RandomTraceIdGenerator(traceProperties.isTraceId128Bit());
     }
 
     @Bean
@@ -35,6 +50,15 @@ public class TerraTraceAutoConfiguration {
         return new TraceContextHolder();
     }
 
+    /**
+     * 按 terra.trace.propagation 配置的格式提取与写出追踪请求头
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public TracePropagator tracePropagator(TerraTraceProperties traceProperties) {
+        return TracePropagator.of(traceProperties.getPropagation());
+    }
+
     /**
      * 用于初始化TraceHelper的专用Bean.
      * 它依赖于TraceIdGenerator Bean，确保在执行初始化时，TraceIdGenerator已经准备就绪.
@@ -48,8 +72,60 @@ public class TerraTraceAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "terra.trace", name = "collector.enabled", havingValue = "true", matchIfMissing = true)
-    public TraceDataCollector traceDataCollector(LogPattern logPattern, TerraTraceProperties traceProperties) {
-        return new TraceDataCollector(logPattern, traceProperties);
+    public TraceDataCollector traceDataCollector(LogPattern logPattern, TerraTraceProperties traceProperties,
+                                                 ObjectProvider<TraceSampler> traceSampler,
+                                                 ObjectProvider<SpanRingStore> spanRingStore,
+                                                 ObjectProvider<SpanExporter> spanExporter) {
+        TraceDataCollector collector = new TraceDataCollector(logPattern, traceProperties,
+            traceSampler.getIfAvailable(() -> TraceDataCollector.createSampler(traceProperties.getCollector())));
+        collector.setSpanStore(spanRingStore.getIfAvailable());
+        collector.setSpanExporter(spanExporter.getIfAvailable());
+        return collector;
+    }
+
+    /**
+     * 以 OTLP/HTTP 导出 span，按 terra.trace.otlp 配置批量发送、压缩、重试与限制并发
+     */
+    @Bean
+    @ConditionalOnMissingBean(SpanExporter.class)
+    @ConditionalOnProperty(prefix = "terra.trace", name = "otlp.enabled", havingValue = "true")
+    public OtlpHttpSpanExporter otlpHttpSpanExporter(TerraTraceProperties traceProperties, Environment environment) {
+        TerraTraceProperties.OtlpConfig otlp = traceProperties.getOtlp();
+        BatchProcessConfig config = new BatchProcessConfig(otlp.getBatchSize(), otlp.getScheduleDelay());
+        config.setMaxBufferedMessages(otlp.getMaxQueueSize());
+        config.setMaxInFlightBatches(otlp.getMaxConcurrentExports());
+        // 缓冲区满时丢弃，不阻塞收集器的刷写线程
+        config.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        config.getRetry().setMaxAttempts(otlp.getMaxAttempts());
+        config.getRetry().setInitialBackoff(otlp.getInitialBackoff());
+        config.getRetry().setMaxBackoff(otlp.getMaxBackoff());
+
+        OtlpHttpSpanExporter exporter = new OtlpHttpSpanExporter(URI.create(otlp.getEndpoint()), config);
+        exporter.setHeaders(otlp.getHeaders());
+        exporter.setGzip(otlp.isGzip());
+        exporter.setTimeout(otlp.getTimeout());
+        Map<String, String> resource = new LinkedHashMap<>(otlp.getResourceAttributes());
+        String serviceName = otlp.getServiceName() != null ? otlp.getServiceName()
+            : environment.getProperty("spring.application.name", "unknown_service:java");
+        resource.put("service.name", serviceName);
+        exporter.setResourceAttributes(resource);
+        return exporter;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "terra.trace", name = "store.enabled", havingValue = "true", matchIfMissing = true)
+    public SpanRingStore spanRingStore(TerraTraceProperties traceProperties) {
+        TerraTraceProperties.StoreConfig store = traceProperties.getStore();
+        return new SpanRingStore(store.getCapacity(), store.getMaxUris());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(SpanRingStore.class)
+    @ConditionalOnProperty(prefix = "terra.trace", name = "store.endpoint-enabled", havingValue = "true")
+    public SpanStoreController spanStoreController(SpanRingStore spanRingStore) {
+        return new SpanStoreController(spanRingStore);
     }
 
     @Bean
@@ -57,11 +133,16 @@ public class TerraTraceAutoConfiguration {
     public FilterRegistrationBean<TerraTraceFilter> traceFilterRegistration(
         TraceIdGenerator traceIdGenerator,
         TraceContextHolder contextHolder,
-        TerraTraceProperties traceProperties) {
+        TracePropagator tracePropagator,
+        TerraTraceProperties traceProperties,
+        ObjectProvider<TraceDataCollector> traceDataCollector) {
 
         FilterRegistrationBean<TerraTraceFilter> registration = new FilterRegistrationBean<>();
-        TerraTraceFilter traceFilter = new TerraTraceFilter(traceIdGenerator, contextHolder);
+        TerraTraceFilter traceFilter = new TerraTraceFilter(traceIdGenerator, contextHolder, tracePropagator);
         traceFilter.setExcludes(traceProperties.getExcludes());
+        if (traceProperties.isEnabled()) {
+            traceFilter.setTraceDataCollector(traceDataCollector.getIfAvailable());
+        }
 
         registration.setFilter(traceFilter);
         registration.addUrlPatterns("/*");
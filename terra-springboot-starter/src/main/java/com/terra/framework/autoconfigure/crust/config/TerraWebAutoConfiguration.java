@@ -9,6 +9,7 @@ import com.terra.framework.autoconfigure.crust.properties.TerraCorsProperties;
 import com.terra.framework.autoconfigure.crust.properties.TerraLoggingProperties;
 import com.terra.framework.autoconfigure.crust.properties.TerraWebContextExcludeProperties;
 import com.terra.framework.autoconfigure.crust.trace.TraceContextHolder;
+import com.terra.framework.bedrock.trace.propagation.TracePropagator;
 import com.terra.framework.common.log.LogPattern;
 import com.terra.framework.crust.customizer.HeaderCustomizer;
 import com.terra.framework.crust.handler.ResponseAdvice;
@@ -107,8 +108,9 @@ public class TerraWebAutoConfiguration {
     }
 
     @Bean
-    public TraceIdRequestInterceptor traceIdRequestInterceptor(TraceContextHolder traceContextHolder) {
-        return new TraceIdRequestInterceptor(traceContextHolder);
+    public TraceIdRequestInterceptor traceIdRequestInterceptor(TraceContextHolder traceContextHolder,
+                                                               TracePropagator tracePropagator) {
+        return new TraceIdRequestInterceptor(traceContextHolder, tracePropagator);
     }
 
     @Bean
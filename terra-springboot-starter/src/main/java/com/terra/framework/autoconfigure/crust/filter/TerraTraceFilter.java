@@ -2,7 +2,13 @@ package com.terra.framework.autoconfigure.crust.filter;
 
 import com.terra.framework.bedrock.trace.TraceIdGenerator;
 import com.terra.framework.autoconfigure.crust.trace.TraceContextHolder;
+import com.terra.framework.autoconfigure.crust.trace.TraceDataCollector;
+import com.terra.framework.bedrock.trace.CurrentTraceContext;
+import com.terra.framework.bedrock.trace.TraceContext;
+import com.terra.framework.bedrock.trace.propagation.TracePropagator;
 import com.terra.framework.crust.web.WebUtil;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,12 +19,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.PathMatcher;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * TerraTraceFilter
@@ -35,7 +40,12 @@ public class TerraTraceFilter extends OncePerRequestFilter {
 
     private final TraceIdGenerator traceIdGenerator;
     private final TraceContextHolder contextHolder;
+    private final TracePropagator propagator;
     private String[] excludes;
+    /**
+     * 链路数据收集器，为 null 时不记录请求
+     */
+    private TraceDataCollector traceDataCollector;
     private final PathMatcher pathMatcher = new AntPathMatcher();
 
     @Override
@@ -47,30 +57,58 @@ public class TerraTraceFilter extends OncePerRequestFilter {
             return;
         }
 
-        try {
-            String traceId = extractTraceId(request);
-            String parentSpanId = request.getHeader(TraceContextHolder.PARENT_SPAN_ID_KEY);
-            String spanId = traceIdGenerator.generate();
-
-            contextHolder.setTrace(traceId, spanId, parentSpanId);
-
-            Map<String, String> traceHeaders = contextHolder.getTraceHeaders();
-            traceHeaders.forEach(response::setHeader);
+        TraceContext extracted = propagator.extract(request, HttpServletRequest::getHeader);
+        TraceContext trace = newSpan(extracted);
+        TraceDataCollector collector = this.traceDataCollector;
+        String path = null;
+        if (collector != null) {
+            path = WebUtil.getPathWithinApplication(request);
+            trace = trace.withSampled(collector.decideSampled(trace.sampled(), path));
+        }
+        // 头部采样下未采样的请求只传递上下文，不做任何收集
+        if (collector == null || (Boolean.FALSE.equals(trace.sampled()) && !collector.isTailSampling())) {
+            try (CurrentTraceContext.Scope ignored = contextHolder.open(trace)) {
+                propagator.inject(trace, response, HttpServletResponse::setHeader);
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
 
+        collector.recordRequestStart(trace.traceId(), trace.spanId(), trace.parentSpanId(), path, null,
+                trace.sampled());
+        long startNanos = System.nanoTime();
+        boolean error = true;
+        try (CurrentTraceContext.Scope ignored = contextHolder.open(trace)) {
+            propagator.inject(trace, response, HttpServletResponse::setHeader);
             filterChain.doFilter(request, response);
-
+            error = false;
         } finally {
-            contextHolder.clear();
+            if (!error && request.isAsyncStarted()) {
+                // 异步请求在完成时才记录结束
+                request.getAsyncContext().addListener(new RecordingAsyncListener(collector, trace, startNanos));
+            } else {
+                collector.recordRequestEnd(trace.traceId(), trace.spanId(), response.getStatus(),
+                        elapsedMillis(startNanos), error);
+            }
         }
     }
 
-    private String extractTraceId(HttpServletRequest request) {
-        String traceId = request.getHeader(TraceContextHolder.TRACE_ID_KEY);
-        if (!StringUtils.hasText(traceId)) {
-            traceId = traceIdGenerator.generate();
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 在上游上下文下开启当前请求的 span；没有上游上下文或上游只传递了采样标记时生成新的追踪ID，沿用该标记
+     */
+    private TraceContext newSpan(TraceContext extracted) {
+        String spanId = traceIdGenerator.generateSpanId();
+        if (extracted == null || extracted.isSamplingOnly()) {
+            String traceId = traceIdGenerator.generate();
             logger.debug("Generated new traceId: {}", traceId);
+            return new TraceContext(traceId, spanId, null, extracted == null ? null : extracted.sampled(), null);
         }
-        return traceId;
+        return new TraceContext(extracted.traceId(), spanId, extracted.spanId(),
+                extracted.sampled(), extracted.traceState());
     }
 
     private boolean isExcludedPath(HttpServletRequest request) {
@@ -82,4 +120,43 @@ public class TerraTraceFilter extends OncePerRequestFilter {
         return Arrays.stream(excludes)
                 .anyMatch(pattern -> pathMatcher.match(pattern, path));
     }
+
+    /**
+     * 异步请求完成、出错或超时时记录请求结束
+     */
+    private static final class RecordingAsyncListener implements AsyncListener {
+
+        private final TraceDataCollector collector;
+        private final TraceContext trace;
+        private final long startNanos;
+        private boolean error;
+
+        RecordingAsyncListener(TraceDataCollector collector, TraceContext trace, long startNanos) {
+            this.collector = collector;
+            this.trace = trace;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            int status = event.getSuppliedResponse() instanceof HttpServletResponse response ? response.getStatus() : 0;
+            collector.recordRequestEnd(trace.traceId(), trace.spanId(), status, elapsedMillis(startNanos), error);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            error = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            error = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 重新开始异步处理时监听器会被移除，需再次注册
+            event.getAsyncContext().addListener(this);
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package com.terra.framework.autoconfigure.crust.interceptor;
 
 import com.terra.framework.autoconfigure.crust.trace.TraceContextHolder;
+import com.terra.framework.bedrock.trace.TraceContext;
+import com.terra.framework.bedrock.trace.propagation.TracePropagator;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
@@ -8,24 +10,25 @@ import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
 
 import java.io.IOException;
-import java.util.Map;
 
 public class TraceIdRequestInterceptor implements ClientHttpRequestInterceptor {
 
     private final TraceContextHolder contextHolder;
 
-    public TraceIdRequestInterceptor(TraceContextHolder contextHolder) {
+    private final TracePropagator propagator;
+
+    public TraceIdRequestInterceptor(TraceContextHolder contextHolder, TracePropagator propagator) {
         this.contextHolder = contextHolder;
+        this.propagator = propagator;
     }
 
     @Override
     public ClientHttpResponse intercept(HttpRequest request, byte[] body,
                                         ClientHttpRequestExecution execution) throws IOException {
-        HttpHeaders headers = request.getHeaders();
-
-        Map<String, String> traceHeaders = contextHolder.getTraceHeaders();
-
-        traceHeaders.forEach(headers::add);
+        TraceContext trace = contextHolder.getContext();
+        if (trace != null) {
+            propagator.inject(trace, request.getHeaders(), HttpHeaders::set);
+        }
 
         return execution.execute(request, body);
     }
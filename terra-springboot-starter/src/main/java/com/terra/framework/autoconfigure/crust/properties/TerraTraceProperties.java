@@ -1,8 +1,15 @@
 package com.terra.framework.autoconfigure.crust.properties;
 
+import com.terra.framework.bedrock.trace.propagation.PropagationType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Data
 @ConfigurationProperties(prefix = "terra.trace")
 public class TerraTraceProperties {
@@ -26,11 +33,31 @@ public class TerraTraceProperties {
             "/swagger-resources/**"
     };
 
+    /**
+     * 默认追踪ID生成器是否生成128位（32位十六进制）追踪ID，为 false 时生成64位
+     */
+    private boolean traceId128Bit = true;
+
+    /**
+     * 追踪上下文的传递格式. 入站按顺序提取第一个有效格式，响应与出站请求写出全部格式
+     */
+    private List<PropagationType> propagation = new ArrayList<>(List.of(PropagationType.TERRA));
+
     /**
      * 链路数据收集器配置
      */
     private CollectorConfig collector = new CollectorConfig();
 
+    /**
+     * 最近 span 的内存存储配置
+     */
+    private StoreConfig store = new StoreConfig();
+
+    /**
+     * OTLP/HTTP 导出配置
+     */
+    private OtlpConfig otlp = new OtlpConfig();
+
     @Data
     public static class CollectorConfig {
         /**
@@ -39,13 +66,229 @@ public class TerraTraceProperties {
         private boolean enabled = true;
         
         /**
-         * 采样率，范围0-1，表示收集的请求比例
+         * 采样率，范围0-1，表示收集的请求比例，sampler 为 PROBABILITY 时生效.
+         * 尾部采样时为未命中任何规则的链路的保留比例
          */
         private double sampleRate = 1.0;
+
+        /**
+         * 采样器类型. 头部采样时决定是否记录，尾部采样时决定未命中规则的链路是否保留
+         */
+        private SamplerType sampler = SamplerType.PROBABILITY;
+
+        /**
+         * 按路由限速采样配置，sampler 为 RATE_LIMITING 时生效
+         */
+        private RateLimitConfig rateLimit = new RateLimitConfig();
+
+        /**
+         * 采样方式
+         */
+        private SamplingMode samplingMode = SamplingMode.HEAD;
+
+        /**
+         * 尾部采样规则，samplingMode 为 TAIL 时生效
+         */
+        private TailSamplingConfig tail = new TailSamplingConfig();
         
         /**
          * 记录的最大链路数量（防止内存溢出）
          */
         private int maxTraceCapacity = 10000;
+
+        /**
+         * 同时进行中（已开始未结束）的 span 数上限，达到上限后新请求不记录
+         */
+        private int maxActiveSpans = 10000;
+
+        /**
+         * 进行中 span 的最长等待时间，超时未结束的 span 以 abandoned 标记输出并释放
+         */
+        private Duration spanTimeout = Duration.ofMinutes(10);
+
+        /**
+         * 是否以结构化日志输出刷写的 span，已导出到外部追踪系统时可关闭
+         */
+        private boolean logEnabled = true;
+    }
+
+    @Data
+    public static class StoreConfig {
+        /**
+         * 是否在内存中保存收集器刷写的最近 span
+         */
+        private boolean enabled = true;
+
+        /**
+         * 保存的 span 数，向上取整为2的幂
+         */
+        private int capacity = 4096;
+
+        /**
+         * 驻留的路由数上限
+         */
+        private int maxUris = 1024;
+
+        /**
+         * 是否注册查询接口，接口暴露请求明细，默认关闭
+         */
+        private boolean endpointEnabled = false;
+
+        /**
+         * 查询接口路径
+         */
+        private String endpointPath = "/terra/trace/spans";
+    }
+
+    @Data
+    public static class OtlpConfig {
+        /**
+         * 是否以 OTLP/HTTP（protobuf）导出收集器刷写的 span
+         */
+        private boolean enabled = false;
+
+        /**
+         * 接收端地址
+         */
+        private String endpoint = "http://localhost:4318/v1/traces";
+
+        /**
+         * 附加的请求头，如鉴权信息
+         */
+        private Map<String, String> headers = new LinkedHashMap<>();
+
+        /**
+         * 资源属性 service.name，未设置时取 spring.application.name
+         */
+        private String serviceName;
+
+        /**
+         * 其他资源属性
+         */
+        private Map<String, String> resourceAttributes = new LinkedHashMap<>();
+
+        /**
+         * 是否以 gzip 压缩请求体
+         */
+        private boolean gzip = true;
+
+        /**
+         * 单次请求超时
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /**
+         * 单个请求最多包含的 span 数
+         */
+        private int batchSize = 512;
+
+        /**
+         * 发送间隔，span 最多在缓冲区中停留该时长
+         */
+        private Duration scheduleDelay = Duration.ofSeconds(5);
+
+        /**
+         * 缓冲的 span 数上限，写满后丢弃新的 span，不阻塞收集器
+         */
+        private int maxQueueSize = 2048;
+
+        /**
+         * 同时发送的请求数上限
+         */
+        private int maxConcurrentExports = 2;
+
+        /**
+         * 单个请求的最大尝试次数（含首次）
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * 首次重试前的退避时间，之后按2倍增长
+         */
+        private Duration initialBackoff = Duration.ofSeconds(1);
+
+        /**
+         * 退避时间上限
+         */
+        private Duration maxBackoff = Duration.ofSeconds(30);
+    }
+
+    /**
+     * 链路采样方式
+     */
+    public enum SamplingMode {
+        /**
+         * 请求开始时按采样率决定是否记录
+         */
+        HEAD,
+        /**
+         * 记录全部请求，链路在本进程内结束时按规则决定是否保留
+         */
+        TAIL
+    }
+
+    /**
+     * 采样器类型
+     */
+    public enum SamplerType {
+        /**
+         * 按 sampleRate 随机采样
+         */
+        PROBABILITY,
+        /**
+         * 按路由限制每秒收集数
+         */
+        RATE_LIMITING
+    }
+
+    @Data
+    public static class RateLimitConfig {
+        /**
+         * 全部路由每秒最多收集的链路数，不大于0表示不限
+         */
+        private double tracesPerSecond = 100;
+
+        /**
+         * 单个路由每秒最多收集的链路数，不大于0表示不限
+         */
+        private double tracesPerSecondPerRoute = 10;
+
+        /**
+         * 单个路由每秒保底收集的链路数，不受 tracesPerSecond 约束，保证低频路由也能被收集
+         */
+        private double minTracesPerSecondPerRoute = 1;
+
+        /**
+         * 独立计数的路由数上限，超出后新路由共用一个配额
+         */
+        private int maxRoutes = 1000;
+    }
+
+    @Data
+    public static class TailSamplingConfig {
+        /**
+         * 链路中任一 span 耗时达到该值即保留
+         */
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+
+        /**
+         * 链路中任一 span 状态码不小于该值即保留
+         */
+        private int statusCodeThreshold = 500;
+
+        /**
+         * 链路中出错的 span 数达到该值即保留，出错指抛出异常或状态码不小于 statusCodeThreshold
+         */
+        private int errorCountThreshold = 1;
+
+        /**
+         * 始终保留的URI（Ant 模式）
+         */
+        private List<String> uriPatterns = new ArrayList<>();
+
+        /**
+         * 单条链路最多缓冲的 span 数，超出的 span 不再缓冲，但仍参与规则判断
+         */
+        private int maxSpansPerTrace = 128;
     }
-} 
\ No newline at end of file
+}
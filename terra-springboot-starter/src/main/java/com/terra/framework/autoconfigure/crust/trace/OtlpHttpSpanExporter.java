@@ -0,0 +1,180 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import com.terra.framework.common.util.concurrent.AbstractBatchProcess;
+import com.terra.framework.common.util.concurrent.BatchProcessConfig;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 以 OTLP/HTTP（protobuf）导出 span，不依赖 OpenTelemetry SDK.
+ * <p>
+ * {@link #export(List)} 只将 span 放入缓冲区，由 {@link AbstractBatchProcess} 按 {@link BatchProcessConfig}
+ * 切批发送：批次大小与间隔、同时发送的请求数（maxInFlightBatches）、缓冲区溢出策略与失败重试的退避均沿用其配置.
+ * 请求体手工编码为 {@code ExportTraceServiceRequest}，默认 gzip 压缩. 网络异常与 429、502、503、504
+ * 视为可重试，抛出异常交给重试；其余非 2xx 响应说明请求本身无法被接受，记录后丢弃该批.
+ */
+@Slf4j
+public class OtlpHttpSpanExporter extends AbstractBatchProcess<TraceDataCollector.TraceData>
+        implements SpanExporter, InitializingBean, DisposableBean {
+
+    private static final String SCOPE_NAME = "com.terra.framework.trace";
+
+    private final URI endpoint;
+
+    private final HttpClient httpClient;
+
+    /**
+     * 附加的请求头，如鉴权信息
+     */
+    @Getter
+    @Setter
+    private Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * 资源属性，如 service.name
+     */
+    @Getter
+    @Setter
+    private Map<String, String> resourceAttributes = new LinkedHashMap<>();
+
+    /**
+     * 是否以 gzip 压缩请求体
+     */
+    @Getter
+    @Setter
+    private boolean gzip = true;
+
+    /**
+     * 单次请求超时
+     */
+    @Getter
+    @Setter
+    private Duration timeout = Duration.ofSeconds(10);
+
+    private final LongAdder exportedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public OtlpHttpSpanExporter(URI endpoint, BatchProcessConfig config) {
+        this(endpoint, config, HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build());
+    }
+
+    public OtlpHttpSpanExporter(URI endpoint, BatchProcessConfig config, HttpClient httpClient) {
+        super(config);
+        this.endpoint = endpoint;
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public void export(List<TraceDataCollector.TraceData> spans) {
+        for (TraceDataCollector.TraceData span : spans) {
+            process(span);
+        }
+    }
+
+    @Override
+    protected Boolean support(TraceDataCollector.TraceData message) {
+        return message != null && message.getTraceId() != null && message.getSpanId() != null;
+    }
+
+    @Override
+    protected Boolean batchInsert(List<TraceDataCollector.TraceData> messages) {
+        ProtoWriter writer = new ProtoWriter(messages.size() * 192 + 256);
+        int count = new OtlpSpanEncoder(resourceAttributes, SCOPE_NAME).encode(messages, writer);
+        if (count < messages.size()) {
+            log.debug("跳过 {} 个 ID 不是十六进制的 span", messages.size() - count);
+        }
+        if (count == 0) {
+            return true;
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/x-protobuf");
+        headers.forEach(request::header);
+        try {
+            if (gzip) {
+                request.header("Content-Encoding", "gzip");
+                request.POST(HttpRequest.BodyPublishers.ofByteArray(compress(writer)));
+            } else {
+                request.POST(HttpRequest.BodyPublishers.ofByteArray(writer.buffer(), 0, writer.size()));
+            }
+            HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                exportedCount.add(count);
+                return true;
+            }
+            if (isRetryable(status)) {
+                throw new UncheckedIOException(new IOException("OTLP export failed, status: " + status));
+            }
+            rejectedCount.add(count);
+            log.warn("OTLP 导出被拒绝，状态码:{}，丢弃 span 数:{}", status, count);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("OTLP export interrupted"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static byte[] compress(ProtoWriter writer) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, writer.size() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(writer.buffer(), 0, writer.size());
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * 成功导出的 span 数
+     */
+    public long getExportedCount() {
+        return exportedCount.sum();
+    }
+
+    /**
+     * 被接收端以不可重试的状态码拒绝而丢弃的 span 数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        log.info("初始化 OTLP span 导出器: {}", endpoint);
+        this.schedule();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        log.info("关闭 OTLP span 导出器");
+        super.destroy();
+    }
+}
@@ -0,0 +1,157 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import com.terra.framework.bedrock.trace.HexCodec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将 span 编码为 OTLP {@code ExportTraceServiceRequest}（opentelemetry/proto/collector/trace/v1）.
+ * <p>
+ * 一个请求只含一个 ResourceSpans 与一个 ScopeSpans. span 名为归一化后的路由，类型为 SERVER，
+ * 出错或 abandoned 的 span 状态为 ERROR. OTLP 要求十六进制 ID，不符合的 span 跳过.
+ */
+final class OtlpSpanEncoder {
+
+    // ExportTraceServiceRequest
+    private static final int REQUEST_RESOURCE_SPANS = 1;
+
+    // ResourceSpans
+    private static final int RESOURCE_SPANS_RESOURCE = 1;
+    private static final int RESOURCE_SPANS_SCOPE_SPANS = 2;
+
+    // Resource
+    private static final int RESOURCE_ATTRIBUTES = 1;
+
+    // ScopeSpans
+    private static final int SCOPE_SPANS_SCOPE = 1;
+    private static final int SCOPE_SPANS_SPANS = 2;
+
+    // InstrumentationScope
+    private static final int SCOPE_NAME = 1;
+
+    // Span
+    private static final int SPAN_TRACE_ID = 1;
+    private static final int SPAN_SPAN_ID = 2;
+    private static final int SPAN_PARENT_SPAN_ID = 4;
+    private static final int SPAN_NAME = 5;
+    private static final int SPAN_KIND = 6;
+    private static final int SPAN_START_TIME = 7;
+    private static final int SPAN_END_TIME = 8;
+    private static final int SPAN_ATTRIBUTES = 9;
+    private static final int SPAN_STATUS = 15;
+
+    // Status
+    private static final int STATUS_MESSAGE = 2;
+    private static final int STATUS_CODE = 3;
+
+    // KeyValue 与 AnyValue
+    private static final int KEY_VALUE_KEY = 1;
+    private static final int KEY_VALUE_VALUE = 2;
+    private static final int ANY_VALUE_STRING = 1;
+    private static final int ANY_VALUE_BOOL = 2;
+    private static final int ANY_VALUE_INT = 3;
+
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private final Map<String, String> resourceAttributes;
+
+    private final String scopeName;
+
+    OtlpSpanEncoder(Map<String, String> resourceAttributes, String scopeName) {
+        this.resourceAttributes = resourceAttributes;
+        this.scopeName = scopeName;
+    }
+
+    /**
+     * @return 写入的 span 数
+     */
+    int encode(List<TraceDataCollector.TraceData> spans, ProtoWriter out) {
+        int resourceSpans = out.beginMessage(REQUEST_RESOURCE_SPANS);
+        int resource = out.beginMessage(RESOURCE_SPANS_RESOURCE);
+        for (Map.Entry<String, String> attribute : resourceAttributes.entrySet()) {
+            if (attribute.getValue() != null) {
+                stringAttribute(out, RESOURCE_ATTRIBUTES, attribute.getKey(), attribute.getValue());
+            }
+        }
+        out.endMessage(resource);
+        int scopeSpans = out.beginMessage(RESOURCE_SPANS_SCOPE_SPANS);
+        int scope = out.beginMessage(SCOPE_SPANS_SCOPE);
+        out.stringField(SCOPE_NAME, scopeName);
+        out.endMessage(scope);
+        int count = 0;
+        for (TraceDataCollector.TraceData span : spans) {
+            if (isValidTraceId(span.getTraceId()) && isValidSpanId(span.getSpanId())) {
+                writeSpan(span, out);
+                count++;
+            }
+        }
+        out.endMessage(scopeSpans);
+        out.endMessage(resourceSpans);
+        return count;
+    }
+
+    private void writeSpan(TraceDataCollector.TraceData span, ProtoWriter out) {
+        int start = out.beginMessage(SCOPE_SPANS_SPANS);
+        out.hexBytesField(SPAN_TRACE_ID, span.getTraceId(), 16);
+        out.hexBytesField(SPAN_SPAN_ID, span.getSpanId(), 8);
+        if (isValidSpanId(span.getParentSpanId())) {
+            out.hexBytesField(SPAN_PARENT_SPAN_ID, span.getParentSpanId(), 8);
+        }
+        out.stringField(SPAN_NAME, RateLimitingTraceSampler.normalize(span.getUri()));
+        out.varintField(SPAN_KIND, SPAN_KIND_SERVER);
+        long endTime = span.getEndTime() > 0 ? span.getEndTime() : span.getStartTime() + span.getDuration();
+        out.fixed64Field(SPAN_START_TIME, TimeUnit.MILLISECONDS.toNanos(span.getStartTime()));
+        out.fixed64Field(SPAN_END_TIME, TimeUnit.MILLISECONDS.toNanos(endTime));
+        if (span.getUri() != null) {
+            stringAttribute(out, SPAN_ATTRIBUTES, "url.path", span.getUri());
+        }
+        if (span.getStatusCode() > 0) {
+            int attribute = out.beginMessage(SPAN_ATTRIBUTES);
+            out.stringField(KEY_VALUE_KEY, "http.response.status_code");
+            int value = out.beginMessage(KEY_VALUE_VALUE);
+            out.varintField(ANY_VALUE_INT, span.getStatusCode());
+            out.endMessage(value);
+            out.endMessage(attribute);
+        }
+        if (span.isAbandoned()) {
+            int attribute = out.beginMessage(SPAN_ATTRIBUTES);
+            out.stringField(KEY_VALUE_KEY, "terra.span.abandoned");
+            int value = out.beginMessage(KEY_VALUE_VALUE);
+            out.boolField(ANY_VALUE_BOOL, true);
+            out.endMessage(value);
+            out.endMessage(attribute);
+        }
+        if (span.isError() || span.isAbandoned()) {
+            int status = out.beginMessage(SPAN_STATUS);
+            if (span.isAbandoned()) {
+                out.stringField(STATUS_MESSAGE, "abandoned");
+            }
+            out.varintField(STATUS_CODE, STATUS_CODE_ERROR);
+            out.endMessage(status);
+        }
+        out.endMessage(start);
+    }
+
+    private static void stringAttribute(ProtoWriter out, int field, String key, String value) {
+        int attribute = out.beginMessage(field);
+        out.stringField(KEY_VALUE_KEY, key);
+        int anyValue = out.beginMessage(KEY_VALUE_VALUE);
+        out.stringField(ANY_VALUE_STRING, value);
+        out.endMessage(anyValue);
+        out.endMessage(attribute);
+    }
+
+    /**
+     * 16 或 32 位小写十六进制，64 位 ID 在高位补0
+     */
+    private static boolean isValidTraceId(String id) {
+        return id != null && (id.length() == 16 || id.length() == 32) && HexCodec.isValidId(id, 0, id.length());
+    }
+
+    private static boolean isValidSpanId(String id) {
+        return id != null && id.length() == 16 && HexCodec.isValidId(id, 0, id.length());
+    }
+}
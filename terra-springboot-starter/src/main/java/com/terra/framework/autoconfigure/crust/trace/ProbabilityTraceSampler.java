@@ -0,0 +1,23 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按固定比例随机采样，与路由无关
+ */
+public class ProbabilityTraceSampler implements TraceSampler {
+
+    private final double rate;
+
+    /**
+     * @param rate 采样率，范围0-1
+     */
+    public ProbabilityTraceSampler(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public boolean isSampled(String uri) {
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
@@ -0,0 +1,139 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 最小的 protobuf 编码器，只支持 OTLP 用到的字段类型.
+ * <p>
+ * 写入可增长的字节数组. 嵌套消息先为长度预留1字节，写完后按实际长度回填，长度超过1字节时整体后移，
+ * 无需预先计算各层消息的大小.
+ */
+final class ProtoWriter {
+
+    static final int WIRE_VARINT = 0;
+
+    static final int WIRE_FIXED64 = 1;
+
+    static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private byte[] buf;
+
+    private int pos;
+
+    ProtoWriter(int initialCapacity) {
+        this.buf = new byte[Math.max(64, initialCapacity)];
+    }
+
+    int size() {
+        return pos;
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    void tag(int field, int wireType) {
+        varint((long) field << 3 | wireType);
+    }
+
+    void varint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+    }
+
+    void varintField(int field, long value) {
+        tag(field, WIRE_VARINT);
+        varint(value);
+    }
+
+    void boolField(int field, boolean value) {
+        tag(field, WIRE_VARINT);
+        varint(value ? 1 : 0);
+    }
+
+    void fixed64Field(int field, long value) {
+        tag(field, WIRE_FIXED64);
+        ensure(8);
+        for (int i = 0; i < 8; i++) {
+            buf[pos++] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    void stringField(int field, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        tag(field, WIRE_LENGTH_DELIMITED);
+        varint(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    /**
+     * 将小写十六进制 ID 解码为定长字节写入，不足 byteLength 时高位补0
+     */
+    void hexBytesField(int field, CharSequence hex, int byteLength) {
+        tag(field, WIRE_LENGTH_DELIMITED);
+        varint(byteLength);
+        ensure(byteLength);
+        int padding = byteLength - hex.length() / 2;
+        for (int i = 0; i < padding; i++) {
+            buf[pos++] = 0;
+        }
+        for (int i = 0; i < hex.length(); i += 2) {
+            buf[pos++] = (byte) (Character.digit(hex.charAt(i), 16) << 4 | Character.digit(hex.charAt(i + 1), 16));
+        }
+    }
+
+    /**
+     * 开始一个嵌套消息
+     *
+     * @return 传给 {@link #endMessage(int)} 的位置
+     */
+    int beginMessage(int field) {
+        tag(field, WIRE_LENGTH_DELIMITED);
+        ensure(1);
+        pos++;
+        return pos;
+    }
+
+    void endMessage(int start) {
+        int length = pos - start;
+        int lengthSize = varintSize(length);
+        if (lengthSize > 1) {
+            ensure(lengthSize - 1);
+            System.arraycopy(buf, start, buf, start + lengthSize - 1, length);
+            pos += lengthSize - 1;
+        }
+        int p = start - 1;
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            buf[p++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[p] = (byte) value;
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private void ensure(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + extra));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按路由限速的采样器，收集量与流量无关，流量突增时导出量保持平稳.
+ * <p>
+ * 每个路由（归一化后的 URI）有独立的令牌桶，限制单个路由每秒收集的链路数，避免健康检查、轮询等高频接口
+ * 占满收集量；所有路由再共享一个全局令牌桶. 每个路由另有每秒的保底配额，保底配额内的链路不受全局限制，
+ * 低频接口因此总能被收集到. 令牌桶用单个 {@link AtomicLong} 按 GCRA 记录理论到达时间，一次 CAS 完成取令牌.
+ * <p>
+ * 归一化时去掉查询串，并将纯数字、UUID 与16位以上十六进制的路径段替换为 {@code {id}}. 路由数达到上限后，
+ * 新路由共用一个溢出桶.
+ */
+public class RateLimitingTraceSampler implements TraceSampler {
+
+    static final String ID_SEGMENT = "{id}";
+
+    static final String OVERFLOW_ROUTE = "*";
+
+    private final TokenBucket global;
+
+    private final double tracesPerSecondPerRoute;
+
+    private final double minTracesPerSecondPerRoute;
+
+    private final int maxRoutes;
+
+    private final Map<String, RouteBuckets> routes = new ConcurrentHashMap<>();
+
+    /**
+     * @param tracesPerSecond            全部路由每秒收集上限，不大于0表示不限
+     * @param tracesPerSecondPerRoute    单个路由每秒收集上限，不大于0表示不限
+     * @param minTracesPerSecondPerRoute 单个路由每秒保底收集数，不受全局上限约束，不大于0表示无保底
+     * @param maxRoutes                  独立计数的路由数上限
+     */
+    public RateLimitingTraceSampler(double tracesPerSecond, double tracesPerSecondPerRoute,
+                                    double minTracesPerSecondPerRoute, int maxRoutes) {
+        if (maxRoutes <= 0) {
+            throw new IllegalArgumentException("maxRoutes must be positive");
+        }
+        this.global = TokenBucket.of(tracesPerSecond);
+        this.tracesPerSecondPerRoute = tracesPerSecondPerRoute;
+        this.minTracesPerSecondPerRoute = minTracesPerSecondPerRoute;
+        this.maxRoutes = maxRoutes;
+    }
+
+    @Override
+    public boolean isSampled(String uri) {
+        RouteBuckets buckets = route(normalize(uri));
+        long now = System.nanoTime();
+        if (buckets.reserved != null && buckets.reserved.tryAcquire(now)) {
+            return true;
+        }
+        return (buckets.limit == null || buckets.limit.tryAcquire(now))
+                && (global == null || global.tryAcquire(now));
+    }
+
+    private RouteBuckets route(String route) {
+        RouteBuckets buckets = routes.get(route);
+        if (buckets != null) {
+            return buckets;
+        }
+        if (routes.size() >= maxRoutes) {
+            route = OVERFLOW_ROUTE;
+        }
+        return routes.computeIfAbsent(route, key -> new RouteBuckets(
+                TokenBucket.of(tracesPerSecondPerRoute), TokenBucket.of(minTracesPerSecondPerRoute)));
+    }
+
+    /**
+     * 当前独立计数的路由数
+     */
+    public int getRouteCount() {
+        return routes.size();
+    }
+
+    /**
+     * 将 URI 归一化为路由：去掉查询串，纯数字、UUID 与16位以上十六进制的路径段替换为 {@code {id}}
+     */
+    static String normalize(String uri) {
+        if (uri == null || uri.isEmpty()) {
+            return "/";
+        }
+        int end = uri.length();
+        for (int i = 0; i < end; i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == ';' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        StringBuilder normalized = null;
+        int segmentStart = 0;
+        while (segmentStart <= end) {
+            int segmentEnd = uri.indexOf('/', segmentStart);
+            if (segmentEnd < 0 || segmentEnd > end) {
+                segmentEnd = end;
+            }
+            if (isIdSegment(uri, segmentStart, segmentEnd)) {
+                if (normalized == null) {
+                    normalized = new StringBuilder(end).append(uri, 0, segmentStart);
+                }
+                normalized.append(ID_SEGMENT);
+            } else if (normalized != null) {
+                normalized.append(uri, segmentStart, segmentEnd);
+            }
+            if (segmentEnd < end && normalized != null) {
+                normalized.append('/');
+            }
+            segmentStart = segmentEnd + 1;
+        }
+        if (normalized != null) {
+            return normalized.toString();
+        }
+        return end == uri.length() ? uri : uri.substring(0, end);
+    }
+
+    private static boolean isIdSegment(String uri, int begin, int end) {
+        int length = end - begin;
+        if (length <= 0) {
+            return false;
+        }
+        boolean digitsOnly = true;
+        boolean hexOnly = true;
+        int dashes = 0;
+        for (int i = begin; i < end; i++) {
+            char c = uri.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            digitsOnly = false;
+            if (c == '-') {
+                dashes++;
+            } else if (!((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                hexOnly = false;
+                break;
+            }
+        }
+        if (digitsOnly) {
+            return true;
+        }
+        if (!hexOnly) {
+            return false;
+        }
+        return (length == 36 && dashes == 4) || (dashes == 0 && length >= 16);
+    }
+
+    private record RouteBuckets(TokenBucket limit, TokenBucket reserved) {
+    }
+
+    /**
+     * 无锁令牌桶（GCRA），容量为一秒的配额
+     */
+    static final class TokenBucket {
+
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        /**
+         * 理论到达时间，取令牌时推进一个间隔
+         */
+        private final AtomicLong theoreticalArrival;
+
+        private TokenBucket(double permitsPerSecond) {
+            this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+            this.burstNanos = intervalNanos * Math.max(1L, (long) Math.ceil(permitsPerSecond));
+            this.theoreticalArrival = new AtomicLong(System.nanoTime());
+        }
+
+        /**
+         * @return 速率不大于0时为 null，表示不限
+         */
+        static TokenBucket of(double permitsPerSecond) {
+            return permitsPerSecond > 0 ? new TokenBucket(permitsPerSecond) : null;
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long next = (arrival - now > 0 ? arrival : now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
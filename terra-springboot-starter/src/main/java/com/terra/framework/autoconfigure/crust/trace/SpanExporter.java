@@ -0,0 +1,17 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import java.util.List;
+
+/**
+ * 将收集器刷写的 span 导出到外部追踪系统.
+ * <p>
+ * 在 {@link TraceDataCollector} 的批处理线程中调用，实现应尽快返回，由自身缓冲并异步发送，
+ * 不应阻塞或抛出异常影响本地日志与内存存储.
+ */
+public interface SpanExporter {
+
+    /**
+     * 导出一批已结束的 span
+     */
+    void export(List<TraceDataCollector.TraceData> spans);
+}
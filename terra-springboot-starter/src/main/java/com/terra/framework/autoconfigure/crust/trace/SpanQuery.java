@@ -0,0 +1,65 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import lombok.Data;
+
+/**
+ * {@link SpanRingStore} 的查询条件，未设置的条件不参与过滤
+ */
+@Data
+public class SpanQuery {
+
+    /**
+     * 结果排序
+     */
+    public enum Order {
+        /**
+         * 耗时降序，即 top-N 慢请求
+         */
+        LATENCY,
+        /**
+         * 开始时间降序，即最近的请求
+         */
+        RECENT
+    }
+
+    private String traceId;
+
+    /**
+     * 路由，与归一化后的 URI 比较，传入原始 URI 时按相同规则归一化
+     */
+    private String uri;
+
+    /**
+     * 状态码下限（含）
+     */
+    private Integer minStatus;
+
+    /**
+     * 状态码上限（含）
+     */
+    private Integer maxStatus;
+
+    /**
+     * 耗时下限（含），毫秒
+     */
+    private Long minDuration;
+
+    /**
+     * 只返回出错的 span
+     */
+    private boolean errorOnly;
+
+    /**
+     * 开始时间下限（含），epoch 毫秒
+     */
+    private Long since;
+
+    /**
+     * 开始时间上限（不含），epoch 毫秒
+     */
+    private Long until;
+
+    private Order order = Order.LATENCY;
+
+    private int limit = 10;
+}
@@ -0,0 +1,17 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+/**
+ * {@link SpanRingStore} 查询结果中的一个已结束 span
+ *
+ * @param traceId      追踪ID
+ * @param spanId       span ID
+ * @param parentSpanId 父 span ID
+ * @param uri          归一化后的路由
+ * @param startTime    开始时间，epoch 毫秒
+ * @param duration     耗时，毫秒
+ * @param statusCode   状态码
+ * @param error        是否出错
+ */
+public record SpanRecord(String traceId, String spanId, String parentSpanId, String uri,
+                         long startTime, long duration, int statusCode, boolean error) {
+}
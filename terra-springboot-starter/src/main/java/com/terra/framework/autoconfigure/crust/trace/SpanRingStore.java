@@ -0,0 +1,208 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 最近已结束 span 的定长环形存储，用于本机诊断.
+ * <p>
+ * 按列存放：时间、耗时、状态码为基本类型数组，URI 归一化为路由后驻留为 int 编号，ID 只保存已有字符串的引用.
+ * 容量固定，写满后覆盖最旧的 span，写入不分配新数组，内存上限由容量决定. 写入以批次为单位加锁，
+ * 查询在锁内扫描并只为命中的 span 构造结果.
+ */
+public class SpanRingStore {
+
+    private final int mask;
+
+    private final String[] traceIds;
+
+    private final String[] spanIds;
+
+    private final String[] parentSpanIds;
+
+    private final long[] startTimes;
+
+    private final long[] durations;
+
+    private final int[] statusCodes;
+
+    private final boolean[] errors;
+
+    private final int[] uriIds;
+
+    /**
+     * 路由驻留表，达到上限后新路由记为 {@link RateLimitingTraceSampler#OVERFLOW_ROUTE}
+     */
+    private final Map<String, Integer> uriIndex = new HashMap<>();
+
+    private final String[] uris;
+
+    private int uriCount;
+
+    /**
+     * 累计写入的 span 数，下一个写入位置为 written & mask
+     */
+    private long written;
+
+    /**
+     * @param capacity 保存的 span 数，向上取整为2的幂
+     * @param maxUris  驻留的路由数上限
+     */
+    public SpanRingStore(int capacity, int maxUris) {
+        if (capacity <= 0 || maxUris <= 0) {
+            throw new IllegalArgumentException("capacity and maxUris must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.traceIds = new String[size];
+        this.spanIds = new String[size];
+        this.parentSpanIds = new String[size];
+        this.startTimes = new long[size];
+        this.durations = new long[size];
+        this.statusCodes = new int[size];
+        this.errors = new boolean[size];
+        this.uriIds = new int[size];
+        this.uris = new String[maxUris + 1];
+    }
+
+    public void add(TraceDataCollector.TraceData span) {
+        synchronized (this) {
+            write(span);
+        }
+    }
+
+    public void addAll(List<TraceDataCollector.TraceData> spans) {
+        synchronized (this) {
+            for (TraceDataCollector.TraceData span : spans) {
+                write(span);
+            }
+        }
+    }
+
+    private void write(TraceDataCollector.TraceData span) {
+        int slot = (int) (written++ & mask);
+        traceIds[slot] = span.getTraceId();
+        spanIds[slot] = span.getSpanId();
+        parentSpanIds[slot] = span.getParentSpanId();
+        startTimes[slot] = span.getStartTime();
+        durations[slot] = span.getDuration();
+        statusCodes[slot] = span.getStatusCode();
+        errors[slot] = span.isError();
+        uriIds[slot] = intern(span.getUri());
+    }
+
+    private int intern(String uri) {
+        if (uri == null) {
+            return -1;
+        }
+        String route = RateLimitingTraceSampler.normalize(uri);
+        Integer id = uriIndex.get(route);
+        if (id != null) {
+            return id;
+        }
+        if (uriCount >= uris.length - 1) {
+            route = RateLimitingTraceSampler.OVERFLOW_ROUTE;
+            id = uriIndex.get(route);
+            if (id != null) {
+                return id;
+            }
+        }
+        id = uriCount++;
+        uris[id] = route;
+        uriIndex.put(route, id);
+        return id;
+    }
+
+    /**
+     * 按条件查询，结果按 {@link SpanQuery#getOrder()} 排序，最多 limit 条
+     */
+    public List<SpanRecord> query(SpanQuery query) {
+        int limit = Math.max(0, query.getLimit());
+        if (limit == 0) {
+            return List.of();
+        }
+        synchronized (this) {
+            int uriId = -2;
+            if (query.getUri() != null) {
+                Integer id = uriIndex.get(RateLimitingTraceSampler.normalize(query.getUri()));
+                if (id == null) {
+                    return List.of();
+                }
+                uriId = id;
+            }
+            int count = (int) Math.min(written, mask + 1L);
+            if (query.getOrder() == SpanQuery.Order.RECENT) {
+                List<SpanRecord> result = new ArrayList<>(Math.min(limit, count));
+                for (int i = 0; i < count && result.size() < limit; i++) {
+                    int slot = (int) ((written - 1 - i) & mask);
+                    if (matches(slot, query, uriId)) {
+                        result.add(toRecord(slot));
+                    }
+                }
+                return result;
+            }
+            // 耗时最小的在堆顶，堆满后只替换更慢的 span
+            PriorityQueue<Integer> slowest = new PriorityQueue<>(Math.min(limit, count) + 1,
+                    Comparator.comparingLong(slot -> durations[slot]));
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((written - 1 - i) & mask);
+                if (!matches(slot, query, uriId)) {
+                    continue;
+                }
+                if (slowest.size() < limit) {
+                    slowest.add(slot);
+                } else if (durations[slowest.peek()] < durations[slot]) {
+                    slowest.poll();
+                    slowest.add(slot);
+                }
+            }
+            List<SpanRecord> result = new ArrayList<>(slowest.size());
+            while (!slowest.isEmpty()) {
+                result.add(toRecord(slowest.poll()));
+            }
+            return result.reversed();
+        }
+    }
+
+    private boolean matches(int slot, SpanQuery query, int uriId) {
+        return (uriId == -2 || uriIds[slot] == uriId)
+                && (query.getTraceId() == null || query.getTraceId().equals(traceIds[slot]))
+                && (query.getMinStatus() == null || statusCodes[slot] >= query.getMinStatus())
+                && (query.getMaxStatus() == null || statusCodes[slot] <= query.getMaxStatus())
+                && (query.getMinDuration() == null || durations[slot] >= query.getMinDuration())
+                && (!query.isErrorOnly() || errors[slot])
+                && (query.getSince() == null || startTimes[slot] >= query.getSince())
+                && (query.getUntil() == null || startTimes[slot] < query.getUntil());
+    }
+
+    private SpanRecord toRecord(int slot) {
+        int uriId = uriIds[slot];
+        return new SpanRecord(traceIds[slot], spanIds[slot], parentSpanIds[slot], uriId < 0 ? null : uris[uriId],
+                startTimes[slot], durations[slot], statusCodes[slot], errors[slot]);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 当前保存的 span 数
+     */
+    public synchronized int size() {
+        return (int) Math.min(written, mask + 1L);
+    }
+
+    /**
+     * 累计写入的 span 数，含已被覆盖的
+     */
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+}
@@ -0,0 +1,40 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 查询 {@link SpanRingStore} 的诊断接口，默认路径 {@code /terra/trace/spans}.
+ * <p>
+ * 例如 {@code ?windowSeconds=300&limit=10} 返回最近五分钟最慢的10个请求，
+ * 其余条件见 {@link SpanQuery}. 接口暴露请求明细，需由 terra.trace.store.endpoint-enabled 显式开启.
+ */
+@RestController
+@RequestMapping("${terra.trace.store.endpoint-path:/terra/trace/spans}")
+public class SpanStoreController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final SpanRingStore spanRingStore;
+
+    public SpanStoreController(SpanRingStore spanRingStore) {
+        this.spanRingStore = spanRingStore;
+    }
+
+    /**
+     * @param windowSeconds 只查询最近若干秒内开始的请求，设置后覆盖 since
+     */
+    @GetMapping
+    public List<SpanRecord> query(SpanQuery query,
+                                  @RequestParam(required = false) Long windowSeconds) {
+        if (windowSeconds != null) {
+            query.setSince(System.currentTimeMillis() - windowSeconds * 1000);
+        }
+        query.setLimit(Math.min(query.getLimit(), MAX_LIMIT));
+        return spanRingStore.query(query);
+    }
+}
@@ -1,86 +1,105 @@
 package com.terra.framework.autoconfigure.crust.trace;
 
-import lombok.Data;
-import org.slf4j.MDC;
+import com.terra.framework.bedrock.trace.CurrentTraceContext;
+import com.terra.framework.bedrock.trace.TraceContext;
 import org.springframework.util.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * 链路追踪上下文持有器，通过ThreadLocal传递跟踪信息
+ * 链路追踪上下文持有器，委托 {@link CurrentTraceContext} 在当前线程持有不可变的 {@link TraceContext}
  */
-@Data
 public class TraceContextHolder {
 
-    public static final String TRACE_ID_KEY = "X-Trace-Id";
-    public static final String SPAN_ID_KEY = "X-Span-Id";
-    public static final String PARENT_SPAN_ID_KEY = "X-Parent-Span-Id";
+    public static final String TRACE_ID_KEY = CurrentTraceContext.MDC_TRACE_ID_KEY;
+    public static final String SPAN_ID_KEY = CurrentTraceContext.MDC_SPAN_ID_KEY;
+    public static final String PARENT_SPAN_ID_KEY = CurrentTraceContext.MDC_PARENT_SPAN_ID_KEY;
 
-    private final ThreadLocal<String> traceId = new ThreadLocal<>();
-    private final ThreadLocal<String> spanId = new ThreadLocal<>();
-    private final ThreadLocal<String> parentSpanId = new ThreadLocal<>();
+    /**
+     * 切换当前线程的上下文，作用域关闭时恢复进入前的上下文
+     */
+    public CurrentTraceContext.Scope open(TraceContext context) {
+        return CurrentTraceContext.open(context);
+    }
+
+    public TraceContext getContext() {
+        return CurrentTraceContext.get();
+    }
+
+    public void setContext(TraceContext context) {
+        CurrentTraceContext.set(context);
+    }
 
     public void setTrace(String traceId, String spanId, String parentSpanId) {
-        setTraceId(traceId);
-        setSpanId(spanId);
-        setParentSpanId(parentSpanId);
+        if (StringUtils.hasText(traceId)) {
+            setContext(TraceContext.of(traceId, emptyToNull(spanId), emptyToNull(parentSpanId)));
+        }
     }
 
     public void setTraceId(String traceId) {
         if (StringUtils.hasText(traceId)) {
-            this.traceId.set(traceId);
-            MDC.put(TRACE_ID_KEY, traceId);
+            TraceContext current = getContext();
+            setContext(current == null ? TraceContext.of(traceId, null, null)
+                    : new TraceContext(traceId, current.spanId(), current.parentSpanId(),
+                    current.sampled(), current.traceState()));
         }
     }
 
     public void setSpanId(String spanId) {
-        if (StringUtils.hasText(spanId)) {
-            this.spanId.set(spanId);
-            MDC.put(SPAN_ID_KEY, spanId);
+        TraceContext current = getContext();
+        if (current != null && StringUtils.hasText(spanId)) {
+            setContext(new TraceContext(current.traceId(), spanId, current.parentSpanId(),
+                    current.sampled(), current.traceState()));
         }
     }
 
     public void setParentSpanId(String parentSpanId) {
-        if (StringUtils.hasText(parentSpanId)) {
-            this.parentSpanId.set(parentSpanId);
-            MDC.put(PARENT_SPAN_ID_KEY, parentSpanId);
+        TraceContext current = getContext();
+        if (current != null && StringUtils.hasText(parentSpanId)) {
+            setContext(new TraceContext(current.traceId(), current.spanId(), parentSpanId,
+                    current.sampled(), current.traceState()));
         }
     }
 
     public String getTraceId() {
-        return traceId.get();
+        TraceContext current = getContext();
+        return current == null ? null : current.traceId();
     }
 
     public String getSpanId() {
-        return spanId.get();
+        TraceContext current = getContext();
+        return current == null ? null : current.spanId();
     }
 
     public String getParentSpanId() {
-        return parentSpanId.get();
+        TraceContext current = getContext();
+        return current == null ? null : current.parentSpanId();
     }
 
     public Map<String, String> getTraceHeaders() {
         Map<String, String> headers = new HashMap<>();
-        if (StringUtils.hasText(getTraceId())) {
-            headers.put(TRACE_ID_KEY, getTraceId());
+        TraceContext current = getContext();
+        if (current == null) {
+            return headers;
         }
-        if (StringUtils.hasText(getSpanId())) {
-            headers.put(SPAN_ID_KEY, getSpanId());
+        if (StringUtils.hasText(current.traceId())) {
+            headers.put(TRACE_ID_KEY, current.traceId());
         }
-        if (StringUtils.hasText(getParentSpanId())) {
-            headers.put(PARENT_SPAN_ID_KEY, getParentSpanId());
+        if (StringUtils.hasText(current.spanId())) {
+            headers.put(SPAN_ID_KEY, current.spanId());
+        }
+        if (StringUtils.hasText(current.parentSpanId())) {
+            headers.put(PARENT_SPAN_ID_KEY, current.parentSpanId());
         }
         return headers;
     }
 
     public void clear() {
-        traceId.remove();
-        spanId.remove();
-        parentSpanId.remove();
+        CurrentTraceContext.clear();
+    }
 
-        MDC.remove(TRACE_ID_KEY);
-        MDC.remove(SPAN_ID_KEY);
-        MDC.remove(PARENT_SPAN_ID_KEY);
+    private static String emptyToNull(String value) {
+        return StringUtils.hasText(value) ? value : null;
     }
 }
@@ -3,39 +3,158 @@ package com.terra.framework.autoconfigure.crust.trace;
 import com.terra.framework.autoconfigure.crust.properties.TerraTraceProperties;
 import com.terra.framework.common.log.LogPattern;
 import com.terra.framework.common.util.concurrent.AbstractBatchProcess;
+import com.terra.framework.common.util.concurrent.BatchProcessConfig;
+import com.terra.framework.common.util.concurrent.DrainReport;
+import com.terra.framework.common.util.concurrent.HashedWheelTimer;
+import com.terra.framework.common.util.concurrent.OverflowPolicy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * 链路追踪数据收集器，用于收集和处理追踪数据
+ * 链路追踪数据收集器，用于收集和处理追踪数据.
+ * <p>
+ * 头部采样（HEAD）在请求开始时按采样率决定是否记录. 尾部采样（TAIL）记录全部请求，结束的 span 按追踪ID
+ * 缓冲，待该链路在本进程内的 span 全部结束后按耗时、状态码、URI 与出错数规则决定是否保留，只有保留的链路
+ * 交给 {@link #batchInsert(List)}. 缓冲的链路数达到 maxTraceCapacity 时，新链路退回头部采样.
+ * <p>
+ * 进行中的 span 数以 maxActiveSpans 为上限，达到上限后新请求不记录. 每个进行中的 span 在共享时间轮上登记
+ * spanTimeout 的超时，请求异常中断或缺少结束调用时，超时的 span 标记为 abandoned 后照常输出，不会长期占用内存.
  */
 @Slf4j
 public class TraceDataCollector extends AbstractBatchProcess<TraceDataCollector.TraceData> implements InitializingBean, DisposableBean {
 
     private final LogPattern logPattern;
     private final TerraTraceProperties traceProperties;
-    private final Map<String, TraceData> activeTraces = new ConcurrentHashMap<>();
+
+    /**
+     * 进行中的 span
+     */
+    private final Map<SpanKey, InFlightSpan> activeSpans = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeSpanCount = new AtomicInteger();
+
+    private final LongAdder rejectedSpanCount = new LongAdder();
+
+    private final LongAdder abandonedSpanCount = new LongAdder();
+
+    /**
+     * 超时待输出的 span，由时间轮线程放入，在批处理线程池中输出，避免输出时阻塞时间轮
+     */
+    private final Queue<TraceData> abandonedSpans = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean abandonedFlushScheduled = new AtomicBoolean();
+
+    /**
+     * 尾部采样中等待决策的链路，key 为追踪ID
+     */
+    private final Map<String, TailTrace> tailTraces = new ConcurrentHashMap<>();
+
+    private final boolean tailSampling;
+
+    private final TraceSampler sampler;
+
+    /**
+     * 保存刷写的 span 供本机查询，为 null 时不保存
+     */
+    private volatile SpanRingStore spanStore;
+
+    /**
+     * 将刷写的 span 导出到外部追踪系统，为 null 时不导出
+     */
+    private volatile SpanExporter spanExporter;
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
 
     public TraceDataCollector(LogPattern logPattern, TerraTraceProperties traceProperties) {
-        super(traceProperties.getCollector().getMaxTraceCapacity(), Duration.ofSeconds(30));
+        this(logPattern, traceProperties, createSampler(traceProperties.getCollector()));
+    }
+
+    public TraceDataCollector(LogPattern logPattern, TerraTraceProperties traceProperties, TraceSampler sampler) {
+        super(batchConfig(traceProperties));
         this.logPattern = logPattern;
         this.traceProperties = traceProperties;
+        this.sampler = sampler;
+        this.tailSampling = traceProperties.getCollector().getSamplingMode() == TerraTraceProperties.SamplingMode.TAIL;
+        // 排空时最后一批 span 写入导出器，须早于导出器（默认阶段0）排空
+        setDrainPhase(1);
+    }
+
+    /**
+     * 收集器在请求线程中写入，缓冲区写满时丢弃而不阻塞请求
+     */
+    private static BatchProcessConfig batchConfig(TerraTraceProperties traceProperties) {
+        BatchProcessConfig config = new BatchProcessConfig(traceProperties.getCollector().getMaxTraceCapacity(), Duration.ofSeconds(30));
+        config.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        return config;
+    }
+
+    /**
+     * 在链路入口决定采样标记，结果随上下文传给下游.
+     * <p>
+     * 头部采样时沿用上游的决定，上游未决定时由采样器决定，同一链路在各服务间只决定一次.
+     * 尾部采样在链路结束时才决定，原样返回上游的标记
+     *
+     * @param upstream 上游传递的采样标记，可为 null
+     * @return 采样标记
+     */
+    public Boolean decideSampled(Boolean upstream, String uri) {
+        if (tailSampling || upstream != null) {
+            return upstream;
+        }
+        return sampler.isSampled(uri);
+    }
+
+    /**
+     * 是否为尾部采样，尾部采样记录全部请求，不受传递的采样标记影响
+     */
+    public boolean isTailSampling() {
+        return tailSampling;
     }
 
     /**
      * 记录请求开始
      */
     public void recordRequestStart(String traceId, String spanId, String parentSpanId, String uri, Map<String, String> headers) {
-        if (!shouldSample()) {
+        recordRequestStart(traceId, spanId, parentSpanId, uri, headers, null);
+    }
+
+    /**
+     * 记录请求开始
+     *
+     * @param sampled 链路的采样标记，头部采样时为 false 不记录、为 true 直接记录、为 null 由采样器决定；尾部采样时忽略
+     */
+    public void recordRequestStart(String traceId, String spanId, String parentSpanId, String uri,
+                                   Map<String, String> headers, Boolean sampled) {
+        if (traceId == null) {
+            return;
+        }
+        if (!tailSampling && !(sampled != null ? sampled : sampler.isSampled(uri))) {
+            return;
+        }
+        if (!tryAcquireSpan()) {
+            rejectedSpanCount.increment();
+            return;
+        }
+        if (tailSampling && !openTailSpan(traceId) && !sampler.isSampled(uri)) {
+            activeSpanCount.decrementAndGet();
             return;
         }
 
@@ -47,30 +166,228 @@ public class TraceDataCollector extends AbstractBatchProcess<TraceDataCollector.
         traceData.setStartTime(System.currentTimeMillis());
         traceData.setHeaders(headers);
 
-        activeTraces.put(traceId + ":" + spanId, traceData);
+        SpanKey key = new SpanKey(traceId, spanId);
+        InFlightSpan span = new InFlightSpan(traceData);
+        InFlightSpan previous = activeSpans.put(key, span);
+        if (previous != null) {
+            // 重复的 span ID，先开始的 span 不会再结束
+            previous.cancel();
+            activeSpanCount.decrementAndGet();
+            abandon(previous.data);
+        }
+        long timeoutNanos = traceProperties.getCollector().getSpanTimeout().toNanos();
+        if (timeoutNanos > 0) {
+            try {
+                span.timeout = getBatchRuntime().getTimer().newTimeout(() -> expire(key, span), timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("定时器已停止，span 不设超时: {}", key);
+            }
+        }
+    }
+
+    private boolean tryAcquireSpan() {
+        int max = traceProperties.getCollector().getMaxActiveSpans();
+        int current;
+        do {
+            current = activeSpanCount.get();
+            if (current >= max) {
+                return false;
+            }
+        } while (!activeSpanCount.compareAndSet(current, current + 1));
+        return true;
     }
 
     /**
      * 记录请求结束
      */
     public void recordRequestEnd(String traceId, String spanId, int statusCode, long duration) {
-        String key = traceId + ":" + spanId;
-        TraceData traceData = activeTraces.remove(key);
-        if (traceData != null) {
+        recordRequestEnd(traceId, spanId, statusCode, duration, false);
+    }
+
+    /**
+     * 记录请求结束
+     *
+     * @param duration 耗时，毫秒
+     * @param error    请求是否以异常结束
+     */
+    public void recordRequestEnd(String traceId, String spanId, int statusCode, long duration, boolean error) {
+        InFlightSpan span = activeSpans.remove(new SpanKey(traceId, spanId));
+        if (span != null) {
+            span.cancel();
+            activeSpanCount.decrementAndGet();
+            TraceData traceData = span.data;
             traceData.setStatusCode(statusCode);
             traceData.setDuration(duration);
             traceData.setEndTime(System.currentTimeMillis());
+            traceData.setError(error || statusCode >= traceProperties.getCollector().getTail().getStatusCodeThreshold());
+            emit(traceData);
+        }
+    }
 
-            // 处理收集到的数据
+    private void emit(TraceData traceData) {
+        if (!tailSampling || !closeTailSpan(traceData.getTraceId(), traceData)) {
+            // 头部采样，或尾部缓冲已满时退回头部采样的链路
             process(traceData);
         }
     }
 
     /**
-     * 根据采样率决定是否采样
+     * span 超时，在时间轮线程中执行，只移出并排队，输出交给批处理线程池
      */
-    private boolean shouldSample() {
-        return ThreadLocalRandom.current().nextDouble() < traceProperties.getCollector().getSampleRate();
+    private void expire(SpanKey key, InFlightSpan span) {
+        if (!activeSpans.remove(key, span)) {
+            return;
+        }
+        activeSpanCount.decrementAndGet();
+        abandonedSpans.add(span.data);
+        scheduleAbandonedFlush();
+    }
+
+    private void scheduleAbandonedFlush() {
+        if (!abandonedFlushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getBatchRuntime().getExecutor().execute(this::flushAbandoned);
+        } catch (RejectedExecutionException e) {
+            // 线程池繁忙时稍后重试，定时器已停止时留给 drain 处理
+            abandonedFlushScheduled.set(false);
+            try {
+                getBatchRuntime().getTimer().newTimeout(this::scheduleAbandonedFlush, 100, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                log.debug("定时器已停止，超时 span 待排空时输出");
+            }
+        }
+    }
+
+    private void flushAbandoned() {
+        try {
+            TraceData traceData;
+            while ((traceData = abandonedSpans.poll()) != null) {
+                abandon(traceData);
+            }
+        } finally {
+            abandonedFlushScheduled.set(false);
+            // 重置标记前放入的 span 未能触发新的输出
+            if (!abandonedSpans.isEmpty()) {
+                scheduleAbandonedFlush();
+            }
+        }
+    }
+
+    /**
+     * 以 abandoned 标记输出未结束的 span，耗时记为开始至今
+     */
+    private void abandon(TraceData traceData) {
+        long now = System.currentTimeMillis();
+        traceData.setEndTime(now);
+        traceData.setDuration(now - traceData.getStartTime());
+        traceData.setAbandoned(true);
+        abandonedSpanCount.increment();
+        emit(traceData);
+    }
+
+    /**
+     * 当前进行中的 span 数
+     */
+    public int getActiveSpanCount() {
+        return activeSpanCount.get();
+    }
+
+    /**
+     * 因进行中的 span 数达到上限而未记录的请求数
+     */
+    public long getRejectedSpanCount() {
+        return rejectedSpanCount.sum();
+    }
+
+    /**
+     * 超时未结束、以 abandoned 标记输出的 span 数
+     */
+    public long getAbandonedSpanCount() {
+        return abandonedSpanCount.sum();
+    }
+
+    /**
+     * 在尾部缓冲中为链路登记一个未结束的 span
+     *
+     * @return 是否已登记；缓冲已满时为 false，该链路退回头部采样
+     */
+    private boolean openTailSpan(String traceId) {
+        int capacity = traceProperties.getCollector().getMaxTraceCapacity();
+        TailTrace tailTrace = tailTraces.compute(traceId, (key, current) -> {
+            if (current == null) {
+                if (tailTraces.size() >= capacity) {
+                    return null;
+                }
+                current = new TailTrace();
+            }
+            current.openSpans++;
+            return current;
+        });
+        return tailTrace != null;
+    }
+
+    /**
+     * 将结束的 span 放入尾部缓冲，链路在本进程内的 span 全部结束时决定是否保留
+     *
+     * @return 链路是否在尾部缓冲中
+     */
+    private boolean closeTailSpan(String traceId, TraceData traceData) {
+        TerraTraceProperties.TailSamplingConfig config = traceProperties.getCollector().getTail();
+        TailTrace[] completed = new TailTrace[1];
+        TailTrace remaining = tailTraces.computeIfPresent(traceId, (key, current) -> {
+            current.add(traceData, config.getMaxSpansPerTrace());
+            if (matchesUri(config, traceData.getUri())) {
+                current.uriMatched = true;
+            }
+            if (--current.openSpans > 0) {
+                return current;
+            }
+            // 移除后同一追踪ID的新请求另起一条缓冲
+            completed[0] = current;
+            return null;
+        });
+        TailTrace tailTrace = completed[0];
+        if (tailTrace != null && shouldKeep(tailTrace, config, traceData.getUri())) {
+            tailTrace.spans.forEach(this::process);
+        }
+        return remaining != null || tailTrace != null;
+    }
+
+    private boolean matchesUri(TerraTraceProperties.TailSamplingConfig config, String uri) {
+        if (uri == null) {
+            return false;
+        }
+        for (String pattern : config.getUriPatterns()) {
+            if (pathMatcher.match(pattern, uri)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param uri 最后结束的 span 的 URI，通常为本进程内的入口请求
+     */
+    private boolean shouldKeep(TailTrace tailTrace, TerraTraceProperties.TailSamplingConfig config, String uri) {
+        return tailTrace.uriMatched
+                || tailTrace.maxDuration >= config.getLatencyThreshold().toMillis()
+                || tailTrace.maxStatusCode >= config.getStatusCodeThreshold()
+                || (config.getErrorCountThreshold() > 0 && tailTrace.errorCount >= config.getErrorCountThreshold())
+                || sampler.isSampled(uri);
+    }
+
+    /**
+     * 按配置创建采样器
+     */
+    public static TraceSampler createSampler(TerraTraceProperties.CollectorConfig config) {
+        if (config.getSampler() == TerraTraceProperties.SamplerType.RATE_LIMITING) {
+            TerraTraceProperties.RateLimitConfig rateLimit = config.getRateLimit();
+            return new RateLimitingTraceSampler(rateLimit.getTracesPerSecond(), rateLimit.getTracesPerSecondPerRoute(),
+                    rateLimit.getMinTracesPerSecondPerRoute(), rateLimit.getMaxRoutes());
+        }
+        return new ProbabilityTraceSampler(config.getSampleRate());
     }
 
     @Override
@@ -78,14 +395,40 @@ public class TraceDataCollector extends AbstractBatchProcess<TraceDataCollector.
         return message != null && message.getTraceId() != null;
     }
 
+    public void setSpanStore(SpanRingStore spanStore) {
+        this.spanStore = spanStore;
+    }
+
+    /**
+     * 设置 span 导出器. 导出器为 {@link com.terra.framework.common.util.concurrent.Drainable} 时其排空阶段须小于收集器（默认1）
+     */
+    public void setSpanExporter(SpanExporter spanExporter) {
+        this.spanExporter = spanExporter;
+    }
+
     @Override
     protected Boolean batchInsert(List<TraceData> messages) {
-        // 这里可以实现将跟踪数据写入日志、数据库或发送到跟踪系统
+        SpanRingStore store = this.spanStore;
+        if (store != null) {
+            store.addAll(messages);
+        }
+        SpanExporter exporter = this.spanExporter;
+        if (exporter != null) {
+            try {
+                exporter.export(messages);
+            } catch (RuntimeException e) {
+                // 导出失败不应导致本批重试，日志与内存存储已写入
+                log.warn("导出链路追踪数据失败，span 数:{}", messages.size(), e);
+            }
+        }
+        if (!traceProperties.getCollector().isLogEnabled()) {
+            return true;
+        }
         for (TraceData data : messages) {
             log.info(logPattern.formalize("链路追踪数据",
-                    "traceId", "spanId", "parentSpanId", "uri", "statusCode", "duration"),
+                    "traceId", "spanId", "parentSpanId", "uri", "statusCode", "duration", "abandoned"),
                     data.getTraceId(), data.getSpanId(), data.getParentSpanId(),
-                    data.getUri(), data.getStatusCode(), data.getDuration() + "ms");
+                    data.getUri(), data.getStatusCode(), data.getDuration() + "ms", data.isAbandoned());
         }
         return true;
     }
@@ -98,6 +441,34 @@ public class TraceDataCollector extends AbstractBatchProcess<TraceDataCollector.
         }
     }
 
+    /**
+     * 排空已结束请求的追踪数据，尚未结束的请求无法产生完整数据，计入丢弃
+     */
+    @Override
+    public DrainReport drain(Duration timeout) {
+        // 已超时的 span 先输出，随本次排空一起刷写
+        TraceData abandoned;
+        while ((abandoned = abandonedSpans.poll()) != null) {
+            abandon(abandoned);
+        }
+        DrainReport report = super.drain(timeout);
+        int unfinished = 0;
+        for (SpanKey key : activeSpans.keySet()) {
+            InFlightSpan span = activeSpans.remove(key);
+            if (span != null) {
+                span.cancel();
+                activeSpanCount.decrementAndGet();
+                unfinished++;
+            }
+        }
+        // 尾部缓冲中尚未决策的链路已结束的 span 同样无法保留
+        for (TailTrace tailTrace : tailTraces.values()) {
+            unfinished += tailTrace.spans.size();
+        }
+        tailTraces.clear();
+        return report.withDropped(unfinished);
+    }
+
     @Override
     public void destroy() throws Exception {
         log.info("关闭链路追踪数据收集器");
@@ -115,9 +486,59 @@ public class TraceDataCollector extends AbstractBatchProcess<TraceDataCollector.
         private long endTime;
         private int statusCode;
         private long duration;
+        private boolean error;
+        /**
+         * 超时未结束，结束时间与耗时为超时时刻
+         */
+        private boolean abandoned;
         private Map<String, String> headers;
 
         public TraceData() {
         }
     }
+
+    /**
+     * 进行中 span 的键，避免每次请求拼接字符串
+     */
+    private record SpanKey(String traceId, String spanId) {
+    }
+
+    private static final class InFlightSpan {
+        private final TraceData data;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        InFlightSpan(TraceData data) {
+            this.data = data;
+        }
+
+        void cancel() {
+            HashedWheelTimer.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * 尾部采样中一条链路的缓冲，只在 tailTraces 的 compute 中修改
+     */
+    private static final class TailTrace {
+        private final List<TraceData> spans = new ArrayList<>(4);
+        private int openSpans;
+        private int errorCount;
+        private long maxDuration;
+        private int maxStatusCode;
+        private boolean uriMatched;
+
+        void add(TraceData traceData, int maxSpans) {
+            if (spans.size() < maxSpans) {
+                spans.add(traceData);
+            }
+            if (traceData.isError() || traceData.isAbandoned()) {
+                errorCount++;
+            }
+            maxDuration = Math.max(maxDuration, traceData.getDuration());
+            maxStatusCode = Math.max(maxStatusCode, traceData.getStatusCode());
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+/**
+ * 链路采样器，决定 {@link TraceDataCollector} 是否收集某条链路. 实现需线程安全
+ */
+@FunctionalInterface
+public interface TraceSampler {
+
+    /**
+     * @param uri 请求 URI，可能为 null
+     * @return 是否收集
+     */
+    boolean isSampled(String uri);
+}
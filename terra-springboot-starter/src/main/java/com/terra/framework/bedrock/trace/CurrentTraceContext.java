@@ -0,0 +1,135 @@
+package com.terra.framework.bedrock.trace;
+
+import org.slf4j.MDC;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * 当前线程的追踪上下文，单个 {@link ThreadLocal} 持有不可变的 {@link TraceContext}.
+ * <p>
+ * 通过 {@link #open(TraceContext)} 或 {@link #run(TraceContext, Runnable)} 在作用域内切换上下文，
+ * 作用域结束时恢复进入前的上下文，无上下文时移除 ThreadLocal，线程池与虚拟线程上都不会残留.
+ * SLF4J MDC 由上下文派生：切换时只比较新旧上下文，写入有变化的键、移除变为空的键.
+ * <p>
+ * JDK 21 的 {@code ScopedValue} 仍为预览特性，需要 {@code --enable-preview}，因此这里只使用 ThreadLocal.
+ *
+ * @author Terra Framework Team
+ */
+public final class CurrentTraceContext {
+
+    public static final String MDC_TRACE_ID_KEY = "X-Trace-Id";
+
+    public static final String MDC_SPAN_ID_KEY = "X-Span-Id";
+
+    public static final String MDC_PARENT_SPAN_ID_KEY = "X-Parent-Span-Id";
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private CurrentTraceContext() {
+    }
+
+    /**
+     * @return 当前线程的上下文，没有时为 null
+     */
+    public static TraceContext get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 切换当前线程的上下文，返回的作用域关闭时恢复进入前的上下文
+     */
+    public static Scope open(TraceContext context) {
+        TraceContext previous = CURRENT.get();
+        replace(previous, context);
+        return new Scope(previous);
+    }
+
+    /**
+     * 在指定上下文中执行任务
+     */
+    public static void run(TraceContext context, Runnable task) {
+        try (Scope ignored = open(context)) {
+            task.run();
+        }
+    }
+
+    /**
+     * 在指定上下文中执行任务并返回结果
+     */
+    public static <T> T call(TraceContext context, Callable<T> task) throws Exception {
+        try (Scope ignored = open(context)) {
+            return task.call();
+        }
+    }
+
+    /**
+     * 包装任务，使其在提交时的上下文中执行；提交时没有上下文则原样返回
+     */
+    public static Runnable wrap(Runnable task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> run(context, task);
+    }
+
+    /**
+     * 不带作用域地替换当前上下文，需由调用方在边界处 {@link #clear()}
+     */
+    public static void set(TraceContext context) {
+        replace(CURRENT.get(), context);
+    }
+
+    public static void clear() {
+        replace(CURRENT.get(), null);
+    }
+
+    private static void replace(TraceContext previous, TraceContext next) {
+        if (next == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(next);
+        }
+        if (previous != next) {
+            syncMdc(previous, next);
+        }
+    }
+
+    private static void syncMdc(TraceContext previous, TraceContext next) {
+        syncMdc(MDC_TRACE_ID_KEY,
+                previous == null ? null : previous.traceId(), next == null ? null : next.traceId());
+        syncMdc(MDC_SPAN_ID_KEY,
+                previous == null ? null : previous.spanId(), next == null ? null : next.spanId());
+        syncMdc(MDC_PARENT_SPAN_ID_KEY,
+                previous == null ? null : previous.parentSpanId(), next == null ? null : next.parentSpanId());
+    }
+
+    private static void syncMdc(String key, String previous, String next) {
+        if (Objects.equals(previous, next)) {
+            return;
+        }
+        if (next == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, next);
+        }
+    }
+
+    /**
+     * 上下文作用域，关闭时恢复进入前的上下文. 只能在打开它的线程上关闭
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final TraceContext previous;
+
+        private Scope(TraceContext previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            replace(CURRENT.get(), previous);
+        }
+    }
+}
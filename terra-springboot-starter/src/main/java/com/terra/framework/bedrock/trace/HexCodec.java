@@ -0,0 +1,123 @@
+package com.terra.framework.bedrock.trace;
+
+/**
+ * 追踪ID的十六进制编解码，只处理小写十六进制.
+ * <p>
+ * 编码通过查表将每个字节直接写入 {@code char[]}，解码逐字符累加到 long，均不产生中间对象，
+ * 用于 W3C traceparent、B3 等格式中 64/128 位 ID 的读写.
+ *
+ * @author Terra Framework Team
+ */
+public final class HexCodec {
+
+    /**
+     * 字节到两个十六进制字符的查找表，下标为 byte * 2
+     */
+    private static final char[] BYTE_TO_HEX = new char[512];
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            BYTE_TO_HEX[i << 1] = DIGITS[i >>> 4];
+            BYTE_TO_HEX[(i << 1) | 1] = DIGITS[i & 0xF];
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * 将 long 编码为16位小写十六进制
+     */
+    public static String toLowerHex(long value) {
+        char[] chars = new char[16];
+        writeHexLong(chars, 0, value);
+        return new String(chars);
+    }
+
+    /**
+     * 将高低两个 long 编码为32位小写十六进制（128位ID）
+     */
+    public static String toLowerHex(long high, long low) {
+        char[] chars = new char[32];
+        writeHexLong(chars, 0, high);
+        writeHexLong(chars, 16, low);
+        return new String(chars);
+    }
+
+    /**
+     * 将 long 按大端序写入 dest 的 [offset, offset + 16)
+     */
+    public static void writeHexLong(char[] dest, int offset, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            int index = (int) ((value >>> shift) & 0xFF) << 1;
+            dest[offset++] = BYTE_TO_HEX[index];
+            dest[offset++] = BYTE_TO_HEX[index + 1];
+        }
+    }
+
+    /**
+     * 解析 [begin, end) 区间内最多16位的小写十六进制
+     *
+     * @return 解析结果；区间为空、超过16位或包含非小写十六进制字符时为0
+     */
+    public static long lowerHexToUnsignedLong(CharSequence value, int begin, int end) {
+        int length = end - begin;
+        if (length <= 0 || length > 16 || end > value.length()) {
+            return 0L;
+        }
+        long result = 0L;
+        for (int i = begin; i < end; i++) {
+            int digit = digit(value.charAt(i));
+            if (digit < 0) {
+                return 0L;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    /**
+     * [begin, end) 区间是否全部为小写十六进制字符
+     */
+    public static boolean isLowerHex(CharSequence value, int begin, int end) {
+        if (begin >= end || end > value.length()) {
+            return false;
+        }
+        for (int i = begin; i < end; i++) {
+            if (digit(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * [begin, end) 区间是否为小写十六进制且不全为零，即有效的追踪ID或span ID
+     */
+    public static boolean isValidId(CharSequence value, int begin, int end) {
+        if (begin >= end || end > value.length()) {
+            return false;
+        }
+        int bits = 0;
+        for (int i = begin; i < end; i++) {
+            int digit = digit(value.charAt(i));
+            if (digit < 0) {
+                return false;
+            }
+            bits |= digit;
+        }
+        return bits != 0;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
@@ -1,5 +1,9 @@
 package com.terra.framework.bedrock.trace;
 
+/**
+ * @deprecated 追踪上下文已统一为 {@link TraceContext}，MDC 键见 {@link CurrentTraceContext}
+ */
+@Deprecated
 public class LoggingContext {
 
     // ziroom request tracing key
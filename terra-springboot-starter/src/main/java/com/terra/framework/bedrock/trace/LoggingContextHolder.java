@@ -1,15 +1,22 @@
 package com.terra.framework.bedrock.trace;
 
+/**
+ * @deprecated 追踪上下文已统一由 {@link CurrentTraceContext} 持有，本类仅为兼容保留
+ */
+@Deprecated
 public class LoggingContextHolder {
 
-    private static final ThreadLocal<LoggingContext> holder = ThreadLocal.withInitial(LoggingContext::new);
-
+    /**
+     * @return 当前追踪ID的快照，修改返回值不会影响当前上下文
+     */
     public static LoggingContext get() {
-        return holder.get();
+        LoggingContext context = new LoggingContext();
+        context.setTraceId(TraceHelper.getTraceId());
+        return context;
     }
 
     public static void remove() {
-        holder.remove();
+        CurrentTraceContext.clear();
     }
 
 }
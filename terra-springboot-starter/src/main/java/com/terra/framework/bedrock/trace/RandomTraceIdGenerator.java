@@ -0,0 +1,51 @@
+package com.terra.framework.bedrock.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于 {@link ThreadLocalRandom} 的追踪ID生成器，框架默认实现.
+ * <p>
+ * 每个线程独立取随机数，无共享锁与熵池阻塞；随机位经 {@link HexCodec} 查表直接编码为小写十六进制.
+ * 生成的 ID 符合 W3C Trace Context：追踪ID为32位（128位）或16位（64位，兼容 B3），
+ * span ID 为16位，且均不为全零. 随机数不具备密码学强度，不能用作令牌等安全用途.
+ *
+ * @author Terra Framework Team
+ */
+public class RandomTraceIdGenerator implements TraceIdGenerator {
+
+    private final boolean traceId128Bit;
+
+    public RandomTraceIdGenerator() {
+        this(true);
+    }
+
+    /**
+     * @param traceId128Bit 为 true 时生成128位追踪ID，否则生成64位
+     */
+    public RandomTraceIdGenerator(boolean traceId128Bit) {
+        this.traceId128Bit = traceId128Bit;
+    }
+
+    @Override
+    public String generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (!traceId128Bit) {
+            return HexCodec.toLowerHex(nonZero(random));
+        }
+        // 低64位非零即保证整个ID非零
+        return HexCodec.toLowerHex(random.nextLong(), nonZero(random));
+    }
+
+    @Override
+    public String generateSpanId() {
+        return HexCodec.toLowerHex(nonZero(ThreadLocalRandom.current()));
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0L);
+        return value;
+    }
+}
@@ -0,0 +1,45 @@
+package com.terra.framework.bedrock.trace;
+
+/**
+ * 不可变的追踪上下文，当前线程通过 {@link CurrentTraceContext} 持有，跨进程通过
+ * {@link com.terra.framework.bedrock.trace.propagation.TracePropagator} 传递.
+ * 上游只传递采样决定（如 B3 的 {@code b3: 0}）时，提取结果的 traceId 与 spanId 为 null，仅 sampled 有值.
+ *
+ * @param traceId      追踪ID
+ * @param spanId       当前 span ID
+ * @param parentSpanId 父 span ID，可为 null
+ * @param sampled      采样标记，未决定时为 null
+ * @param traceState   W3C tracestate 原文，可为 null
+ * @author Terra Framework Team
+ */
+public record TraceContext(String traceId, String spanId, String parentSpanId, Boolean sampled, String traceState) {
+
+    public static TraceContext of(String traceId, String spanId, String parentSpanId) {
+        return new TraceContext(traceId, spanId, parentSpanId, null, null);
+    }
+
+    /**
+     * 只携带采样标记、没有追踪ID的上下文
+     */
+    public static TraceContext samplingOnly(boolean sampled) {
+        return new TraceContext(null, null, null, sampled, null);
+    }
+
+    /**
+     * 是否只携带采样标记
+     */
+    public boolean isSamplingOnly() {
+        return traceId == null;
+    }
+
+    /**
+     * 以当前 span 为父 span 的子上下文，沿用追踪ID、采样标记与 tracestate
+     */
+    public TraceContext child(String childSpanId) {
+        return new TraceContext(traceId, childSpanId, spanId, sampled, traceState);
+    }
+
+    public TraceContext withSampled(Boolean sampled) {
+        return new TraceContext(traceId, spanId, parentSpanId, sampled, traceState);
+    }
+}
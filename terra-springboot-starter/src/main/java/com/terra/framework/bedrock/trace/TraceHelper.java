@@ -1,12 +1,12 @@
 package com.terra.framework.bedrock.trace;
 
-import org.slf4j.MDC;
-
 import java.util.Objects;
 
 /**
  * 手动配置 traceId， 应用于异步场景.
  * <p>
+ * 上下文统一由 {@link CurrentTraceContext} 持有，本类只负责借助 {@link TraceIdGenerator} 生成根上下文与子上下文.
+ * <p>
  * 这是一个纯粹的工具类，需要通过外部调用 {@link #init(TraceIdGenerator)} 方法来初始化.
  * 在Spring环境中，这个初始化过程应该由一个Spring-aware的模块（如terra-crust）来完成.
  *
@@ -39,37 +39,67 @@ public final class TraceHelper {
             "Please ensure it is initialized at application startup.");
     }
 
+    /**
+     * @return 当前线程的追踪ID，没有上下文时为 null
+     */
     public static String getTraceId() {
+        TraceContext context = CurrentTraceContext.get();
+        return context == null ? null : context.traceId();
+    }
+
+    /**
+     * 生成新的根上下文
+     */
+    public static TraceContext newRootContext() {
         ensureInitialized();
-        String traceId = MDC.get(LoggingContext.MDC_TRACE_KEY);
-        return traceId == null ? traceIdGenerator.generate() : traceId;
+        return TraceContext.of(traceIdGenerator.generate(), traceIdGenerator.generateSpanId(), null);
     }
 
+    /**
+     * 生成 parent 的子上下文；parent 为 null 时生成新的根上下文
+     */
+    public static TraceContext newChildContext(TraceContext parent) {
+        if (parent == null) {
+            return newRootContext();
+        }
+        ensureInitialized();
+        return parent.child(traceIdGenerator.generateSpanId());
+    }
+
+    /**
+     * 以指定追踪ID开启新的 span 并设为当前上下文. 需要在边界处 {@link #clearTraceId()}，
+     * 新代码应使用 {@link CurrentTraceContext#run(TraceContext, Runnable)}
+     */
     public static void setTraceId(String traceId) {
-        LoggingContextHolder.get().setTraceId(traceId);
-        MDC.put(LoggingContext.MDC_TRACE_KEY, traceId);
+        ensureInitialized();
+        CurrentTraceContext.set(TraceContext.of(traceId, traceIdGenerator.generateSpanId(), null));
     }
 
     public static void clearTraceId() {
-        LoggingContextHolder.remove();
-        MDC.remove(LoggingContext.MDC_TRACE_KEY);
+        CurrentTraceContext.clear();
     }
 
-    // 增加一级 traceId， 用于父子线程
+    /**
+     * 在 traceId 下开启子 span，traceId 为 null 时开启新的追踪
+     *
+     * @deprecated 使用 {@link #newChildContext(TraceContext)} 与 {@link CurrentTraceContext#open(TraceContext)}
+     */
+    @Deprecated
     public static void markChildTraceId(String traceId) {
-        ensureInitialized();
-        StringBuilder sb = new StringBuilder();
-        String childTraceId = traceIdGenerator.generate();
-        setTraceId(traceId == null ? childTraceId : sb.append(traceId).append(":").append(childTraceId).toString());
-    }
-
-    // 清除 子traceId
-    public static void clearChildTrace(String traceId) {
-        ensureInitialized();
         if (traceId == null) {
-            setTraceId(traceIdGenerator.generate());
+            CurrentTraceContext.set(newRootContext());
             return;
         }
-        setTraceId(traceId.split(":")[0]);
+        setTraceId(traceId);
+    }
+
+    /**
+     * 回到 traceId 对应的追踪，traceId 为 null 时开启新的追踪
+     *
+     * @deprecated 使用 {@link CurrentTraceContext.Scope#close()} 恢复进入前的上下文
+     */
+    @Deprecated
+    public static void clearChildTrace(String traceId) {
+        markChildTraceId(traceId);
     }
 }
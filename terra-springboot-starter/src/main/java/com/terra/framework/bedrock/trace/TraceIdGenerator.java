@@ -3,7 +3,7 @@ package com.terra.framework.bedrock.trace;
 /**
  * 分布式追踪ID生成器接口.
  * <p>
- * 定义了生成唯一追踪ID的标准方法. 框架提供一个默认的UUID实现 ({@link UUIDTraceIdGenerator}),
+ * 定义了生成唯一追踪ID的标准方法. 框架默认使用 {@link RandomTraceIdGenerator}，另提供UUID实现 ({@link UUIDTraceIdGenerator}),
  * 用户可以提供自己的实现并注册为Spring Bean, 以覆盖默认行为.
  * 这允许与外部追踪系统 (如 SkyWalking, Zipkin) 进行集成.
  * </p>
@@ -18,4 +18,14 @@ public interface TraceIdGenerator {
      * @return a {@link java.lang.String} object.
      */
     String generate();
-} 
\ No newline at end of file
+
+    /**
+     * 生成一个新的span ID. 默认与 {@link #generate()} 相同，需要 W3C/B3 兼容的16位ID时应覆盖
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    default String generateSpanId() {
+        return generate();
+    }
+}
+ 
\ No newline at end of file
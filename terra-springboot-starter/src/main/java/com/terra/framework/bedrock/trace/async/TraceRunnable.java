@@ -1,6 +1,8 @@
 package com.terra.framework.bedrock.trace.async;
 
 
+import com.terra.framework.bedrock.trace.CurrentTraceContext;
+import com.terra.framework.bedrock.trace.TraceContext;
 import com.terra.framework.bedrock.trace.TraceHelper;
 
 /**
@@ -14,17 +16,27 @@ public class TraceRunnable implements Runnable {
 
     private final Runnable delegate;
 
-    private final String tracerId;
+    private final TraceContext parent;
 
+    /**
+     * @param parent 提交任务时的上下文，任务在其子 span 中执行；为 null 时开启新的追踪
+     */
+    public TraceRunnable(Runnable delegate, TraceContext parent) {
+        this.delegate = delegate;
+        this.parent = parent;
+    }
 
+    /**
+     * @deprecated 使用 {@link #TraceRunnable(Runnable, TraceContext)}
+     */
+    @Deprecated
     public TraceRunnable(Runnable delegate, String tracerId) {
-        this.delegate = delegate;
-        this.tracerId = tracerId;
+        this(delegate, tracerId == null ? null : TraceContext.of(tracerId, null, null));
     }
 
     @Override
     public void run() {
-        TraceHelper.markChildTraceId(tracerId);
-        this.delegate.run();
+        // 执行完恢复线程原有上下文，避免池化线程残留
+        CurrentTraceContext.run(TraceHelper.newChildContext(parent), delegate);
     }
 }
@@ -2,7 +2,7 @@ package com.terra.framework.bedrock.trace.async;
 
 
 
-import com.terra.framework.bedrock.trace.TraceHelper;
+import com.terra.framework.bedrock.trace.CurrentTraceContext;
 
 import java.util.concurrent.Executor;
 
@@ -26,6 +26,6 @@ public class TraceableExecutorService implements Executor {
         if (command == null) {
             return;
         }
-        this.delegate.execute(new TraceRunnable(command, TraceHelper.getTraceId()));
+        this.delegate.execute(new TraceRunnable(command, CurrentTraceContext.get()));
     }
 }
@@ -0,0 +1,69 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.TraceContext;
+
+/**
+ * B3 多请求头格式：{@code X-B3-TraceId}、{@code X-B3-SpanId}、{@code X-B3-ParentSpanId}、
+ * {@code X-B3-Sampled} 与 {@code X-B3-Flags}（值为1表示 debug，视为采样）.
+ *
+ * @author Terra Framework Team
+ */
+public final class B3MultiPropagator implements TracePropagator {
+
+    public static final String TRACE_ID = "X-B3-TraceId";
+
+    public static final String SPAN_ID = "X-B3-SpanId";
+
+    public static final String PARENT_SPAN_ID = "X-B3-ParentSpanId";
+
+    public static final String SAMPLED = "X-B3-Sampled";
+
+    public static final String FLAGS = "X-B3-Flags";
+
+    @Override
+    public <C> TraceContext extract(C carrier, Getter<C> getter) {
+        String traceId = getter.get(carrier, TRACE_ID);
+        if (!B3SinglePropagator.isTraceId(traceId)) {
+            return null;
+        }
+        String spanId = getter.get(carrier, SPAN_ID);
+        if (!B3SinglePropagator.isSpanId(spanId)) {
+            return null;
+        }
+        String parentSpanId = getter.get(carrier, PARENT_SPAN_ID);
+        return new TraceContext(traceId, spanId,
+                B3SinglePropagator.isSpanId(parentSpanId) ? parentSpanId : null,
+                parseSampled(getter.get(carrier, SAMPLED), getter.get(carrier, FLAGS)), null);
+    }
+
+    private static Boolean parseSampled(String sampled, String flags) {
+        if ("1".equals(flags)) {
+            return Boolean.TRUE;
+        }
+        if (sampled == null) {
+            return null;
+        }
+        if ("1".equals(sampled) || "true".equalsIgnoreCase(sampled)) {
+            return Boolean.TRUE;
+        }
+        if ("0".equals(sampled) || "false".equalsIgnoreCase(sampled)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    @Override
+    public <C> void inject(TraceContext trace, C carrier, Setter<C> setter) {
+        if (!B3SinglePropagator.isTraceId(trace.traceId()) || !B3SinglePropagator.isSpanId(trace.spanId())) {
+            return;
+        }
+        setter.set(carrier, TRACE_ID, trace.traceId());
+        setter.set(carrier, SPAN_ID, trace.spanId());
+        if (B3SinglePropagator.isSpanId(trace.parentSpanId())) {
+            setter.set(carrier, PARENT_SPAN_ID, trace.parentSpanId());
+        }
+        if (trace.sampled() != null) {
+            setter.set(carrier, SAMPLED, trace.sampled() ? "1" : "0");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.HexCodec;
+import com.terra.framework.bedrock.trace.TraceContext;
+
+/**
+ * B3 单请求头格式：{@code b3: <trace-id>-<span-id>[-<sampling>[-<parent-span-id>]]}.
+ * <p>
+ * trace-id 为16或32位、span ID 为16位小写十六进制，sampling 为 {@code 0}、{@code 1} 或 {@code d}（debug，视为采样）.
+ * 只携带采样标记的 {@code b3: 0}、{@code b3: 1} 或 {@code b3: d} 提取为 {@link TraceContext#samplingOnly(boolean)}.
+ *
+ * @author Terra Framework Team
+ */
+public final class B3SinglePropagator implements TracePropagator {
+
+    public static final String B3 = "b3";
+
+    @Override
+    public <C> TraceContext extract(C carrier, Getter<C> getter) {
+        String b3 = getter.get(carrier, B3);
+        if (b3 == null) {
+            return null;
+        }
+        int length = b3.length();
+        if (length == 1) {
+            Boolean sampled = parseSampling(b3.charAt(0));
+            return sampled == null ? null : TraceContext.samplingOnly(sampled);
+        }
+        int traceIdEnd = length > 32 && b3.charAt(32) == '-' ? 32 : 16;
+        if (length < traceIdEnd + 17 || b3.charAt(traceIdEnd) != '-'
+                || !HexCodec.isValidId(b3, 0, traceIdEnd)) {
+            return null;
+        }
+        int spanIdEnd = traceIdEnd + 17;
+        if (!HexCodec.isValidId(b3, traceIdEnd + 1, spanIdEnd)) {
+            return null;
+        }
+        Boolean sampled = null;
+        String parentSpanId = null;
+        if (length > spanIdEnd) {
+            // -<sampling>[-<parent-span-id>]
+            if (b3.charAt(spanIdEnd) != '-' || length < spanIdEnd + 2) {
+                return null;
+            }
+            sampled = parseSampling(b3.charAt(spanIdEnd + 1));
+            if (sampled == null) {
+                return null;
+            }
+            int parentBegin = spanIdEnd + 3;
+            if (length > spanIdEnd + 2) {
+                if (length != parentBegin + 16 || b3.charAt(spanIdEnd + 2) != '-'
+                        || !HexCodec.isValidId(b3, parentBegin, length)) {
+                    return null;
+                }
+                parentSpanId = b3.substring(parentBegin);
+            }
+        }
+        return new TraceContext(b3.substring(0, traceIdEnd), b3.substring(traceIdEnd + 1, spanIdEnd),
+                parentSpanId, sampled, null);
+    }
+
+    private static Boolean parseSampling(char c) {
+        return switch (c) {
+            case '1', 'd' -> Boolean.TRUE;
+            case '0' -> Boolean.FALSE;
+            default -> null;
+        };
+    }
+
+    @Override
+    public <C> void inject(TraceContext trace, C carrier, Setter<C> setter) {
+        String traceId = trace.traceId();
+        String spanId = trace.spanId();
+        if (!isTraceId(traceId) || !isSpanId(spanId)) {
+            return;
+        }
+        String parentSpanId = isSpanId(trace.parentSpanId()) ? trace.parentSpanId() : null;
+        int length = traceId.length() + 17;
+        if (trace.sampled() != null) {
+            length += 2;
+            if (parentSpanId != null) {
+                length += 17;
+            }
+        }
+        char[] chars = new char[length];
+        traceId.getChars(0, traceId.length(), chars, 0);
+        int offset = traceId.length();
+        chars[offset++] = '-';
+        spanId.getChars(0, 16, chars, offset);
+        offset += 16;
+        if (trace.sampled() != null) {
+            chars[offset++] = '-';
+            chars[offset++] = trace.sampled() ? '1' : '0';
+            if (parentSpanId != null) {
+                chars[offset++] = '-';
+                parentSpanId.getChars(0, 16, chars, offset);
+            }
+        }
+        setter.set(carrier, B3, new String(chars));
+    }
+
+    static boolean isTraceId(String traceId) {
+        return traceId != null && (traceId.length() == 32 || traceId.length() == 16)
+                && HexCodec.isValidId(traceId, 0, traceId.length());
+    }
+
+    static boolean isSpanId(String spanId) {
+        return spanId != null && spanId.length() == 16 && HexCodec.isValidId(spanId, 0, 16);
+    }
+}
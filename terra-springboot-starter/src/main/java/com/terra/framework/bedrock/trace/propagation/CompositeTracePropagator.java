@@ -0,0 +1,46 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.TraceContext;
+
+import java.util.List;
+
+/**
+ * 组合多种传递格式，提取时按顺序取第一个带追踪ID的结果，注入时写出全部格式.
+ * 只携带采样标记的结果不终止查找：后续格式提供了追踪ID但未决定采样时沿用该标记，均未提供追踪ID时返回该结果
+ *
+ * @author Terra Framework Team
+ */
+final class CompositeTracePropagator implements TracePropagator {
+
+    private final TracePropagator[] propagators;
+
+    CompositeTracePropagator(List<TracePropagator> propagators) {
+        this.propagators = propagators.toArray(new TracePropagator[0]);
+    }
+
+    @Override
+    public <C> TraceContext extract(C carrier, Getter<C> getter) {
+        TraceContext samplingOnly = null;
+        for (TracePropagator propagator : propagators) {
+            TraceContext trace = propagator.extract(carrier, getter);
+            if (trace == null) {
+                continue;
+            }
+            if (!trace.isSamplingOnly()) {
+                return samplingOnly != null && trace.sampled() == null
+                        ? trace.withSampled(samplingOnly.sampled()) : trace;
+            }
+            if (samplingOnly == null) {
+                samplingOnly = trace;
+            }
+        }
+        return samplingOnly;
+    }
+
+    @Override
+    public <C> void inject(TraceContext trace, C carrier, Setter<C> setter) {
+        for (TracePropagator propagator : propagators) {
+            propagator.inject(trace, carrier, setter);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+/**
+ * 支持的追踪上下文传递格式
+ *
+ * @author Terra Framework Team
+ */
+public enum PropagationType {
+
+    /**
+     * W3C Trace Context：traceparent / tracestate
+     */
+    W3C(new W3CTraceContextPropagator()),
+
+    /**
+     * B3 单请求头：b3
+     */
+    B3(new B3SinglePropagator()),
+
+    /**
+     * B3 多请求头：X-B3-TraceId、X-B3-SpanId 等
+     */
+    B3_MULTI(new B3MultiPropagator()),
+
+    /**
+     * 框架原有格式：X-Trace-Id、X-Span-Id、X-Parent-Span-Id
+     */
+    TERRA(new TerraHeaderPropagator());
+
+    private final TracePropagator propagator;
+
+    PropagationType(TracePropagator propagator) {
+        this.propagator = propagator;
+    }
+
+    public TracePropagator propagator() {
+        return propagator;
+    }
+}
@@ -0,0 +1,67 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.TraceContext;
+
+/**
+ * 框架原有格式：{@code X-Trace-Id}、{@code X-Span-Id}、{@code X-Parent-Span-Id}，采样标记为 {@code X-Trace-Sampled}（1/0）.
+ * <p>
+ * ID 不限于十六进制，原样透传，兼容自定义 {@link com.terra.framework.bedrock.trace.TraceIdGenerator}.
+ * 提取时以上游的 {@code X-Span-Id} 作为父 span，上游只携带 {@code X-Parent-Span-Id} 时退回使用该值.
+ *
+ * @author Terra Framework Team
+ */
+public final class TerraHeaderPropagator implements TracePropagator {
+
+    public static final String TRACE_ID = "X-Trace-Id";
+
+    public static final String SPAN_ID = "X-Span-Id";
+
+    public static final String PARENT_SPAN_ID = "X-Parent-Span-Id";
+
+    public static final String SAMPLED = "X-Trace-Sampled";
+
+    @Override
+    public <C> TraceContext extract(C carrier, Getter<C> getter) {
+        String traceId = getter.get(carrier, TRACE_ID);
+        if (isBlank(traceId)) {
+            return null;
+        }
+        String spanId = getter.get(carrier, SPAN_ID);
+        if (isBlank(spanId)) {
+            spanId = getter.get(carrier, PARENT_SPAN_ID);
+        }
+        return new TraceContext(traceId, isBlank(spanId) ? null : spanId, null,
+                parseSampled(getter.get(carrier, SAMPLED)), null);
+    }
+
+    private static Boolean parseSampled(String sampled) {
+        if ("1".equals(sampled) || "true".equalsIgnoreCase(sampled)) {
+            return Boolean.TRUE;
+        }
+        if ("0".equals(sampled) || "false".equalsIgnoreCase(sampled)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    @Override
+    public <C> void inject(TraceContext trace, C carrier, Setter<C> setter) {
+        if (isBlank(trace.traceId())) {
+            return;
+        }
+        setter.set(carrier, TRACE_ID, trace.traceId());
+        if (!isBlank(trace.spanId())) {
+            setter.set(carrier, SPAN_ID, trace.spanId());
+        }
+        if (!isBlank(trace.parentSpanId())) {
+            setter.set(carrier, PARENT_SPAN_ID, trace.parentSpanId());
+        }
+        if (trace.sampled() != null) {
+            setter.set(carrier, SAMPLED, trace.sampled() ? "1" : "0");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
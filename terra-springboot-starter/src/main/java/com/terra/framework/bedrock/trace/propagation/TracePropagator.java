@@ -0,0 +1,57 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.TraceContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 追踪上下文在请求头中的编解码.
+ * <p>
+ * 通过 {@link Getter}/{@link Setter} 读写载体，与 Servlet、RestTemplate 等具体类型解耦.
+ * 实现需无状态、线程安全.
+ *
+ * @author Terra Framework Team
+ */
+public interface TracePropagator {
+
+    /**
+     * 从载体中提取追踪上下文. 结果的 spanId 为上游（调用方）的 span，即当前请求的父 span
+     *
+     * @return 上下文；只携带采样标记时为 {@link TraceContext#isSamplingOnly()} 的上下文；未携带或格式无效时为 null
+     */
+    <C> TraceContext extract(C carrier, Getter<C> getter);
+
+    /**
+     * 将追踪上下文写入载体. ID 不符合本格式要求时不写入
+     */
+    <C> void inject(TraceContext trace, C carrier, Setter<C> setter);
+
+    /**
+     * 按配置顺序组合多种格式：提取时取第一个带追踪ID的结果，注入时写出全部格式
+     */
+    static TracePropagator of(Collection<PropagationType> types) {
+        if (types == null || types.isEmpty()) {
+            return PropagationType.TERRA.propagator();
+        }
+        List<TracePropagator> propagators = new ArrayList<>(types.size());
+        for (PropagationType type : types) {
+            TracePropagator propagator = type.propagator();
+            if (!propagators.contains(propagator)) {
+                propagators.add(propagator);
+            }
+        }
+        return propagators.size() == 1 ? propagators.get(0) : new CompositeTracePropagator(propagators);
+    }
+
+    @FunctionalInterface
+    interface Getter<C> {
+        String get(C carrier, String key);
+    }
+
+    @FunctionalInterface
+    interface Setter<C> {
+        void set(C carrier, String key, String value);
+    }
+}
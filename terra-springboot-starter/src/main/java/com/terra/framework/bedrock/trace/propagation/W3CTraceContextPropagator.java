@@ -0,0 +1,96 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.HexCodec;
+import com.terra.framework.bedrock.trace.TraceContext;
+
+/**
+ * W3C Trace Context 格式：{@code traceparent: 00-<32位trace-id>-<16位parent-id>-<2位flags>}，
+ * 以及原样透传的 {@code tracestate}.
+ * <p>
+ * 按固定偏移逐字符校验，不做 split 或正则匹配；64位追踪ID注入时左侧补零到32位.
+ * 采样标记未决定时 flags 写为 {@code 00}，不让下游把未经采样决定的链路当作已采样.
+ *
+ * @author Terra Framework Team
+ */
+public final class W3CTraceContextPropagator implements TracePropagator {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    public static final String TRACESTATE = "tracestate";
+
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    private static final int TRACE_ID_OFFSET = 3;
+
+    private static final int SPAN_ID_OFFSET = 36;
+
+    private static final int FLAGS_OFFSET = 53;
+
+    @Override
+    public <C> TraceContext extract(C carrier, Getter<C> getter) {
+        String traceparent = getter.get(carrier, TRACEPARENT);
+        if (traceparent == null || !isValid(traceparent)) {
+            return null;
+        }
+        long flags = HexCodec.lowerHexToUnsignedLong(traceparent, FLAGS_OFFSET, TRACEPARENT_LENGTH);
+        String traceState = getter.get(carrier, TRACESTATE);
+        return new TraceContext(
+                traceparent.substring(TRACE_ID_OFFSET, SPAN_ID_OFFSET - 1),
+                traceparent.substring(SPAN_ID_OFFSET, FLAGS_OFFSET - 1),
+                null,
+                (flags & 1) != 0,
+                traceState == null || traceState.isEmpty() ? null : traceState);
+    }
+
+    private static boolean isValid(String traceparent) {
+        int length = traceparent.length();
+        if (length < TRACEPARENT_LENGTH
+                || traceparent.charAt(2) != '-'
+                || traceparent.charAt(SPAN_ID_OFFSET - 1) != '-'
+                || traceparent.charAt(FLAGS_OFFSET - 1) != '-') {
+            return false;
+        }
+        if (!HexCodec.isLowerHex(traceparent, 0, 2) || traceparent.startsWith("ff")) {
+            return false;
+        }
+        // 版本00长度固定；更高版本允许在 flags 之后以 '-' 追加字段
+        boolean version00 = traceparent.charAt(0) == '0' && traceparent.charAt(1) == '0';
+        if (length > TRACEPARENT_LENGTH && (version00 || traceparent.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return false;
+        }
+        return HexCodec.isValidId(traceparent, TRACE_ID_OFFSET, SPAN_ID_OFFSET - 1)
+                && HexCodec.isValidId(traceparent, SPAN_ID_OFFSET, FLAGS_OFFSET - 1)
+                && HexCodec.isLowerHex(traceparent, FLAGS_OFFSET, TRACEPARENT_LENGTH);
+    }
+
+    @Override
+    public <C> void inject(TraceContext trace, C carrier, Setter<C> setter) {
+        String traceId = trace.traceId();
+        String spanId = trace.spanId();
+        if (traceId == null || spanId == null
+                || (traceId.length() != 32 && traceId.length() != 16)
+                || spanId.length() != 16
+                || !HexCodec.isValidId(traceId, 0, traceId.length())
+                || !HexCodec.isValidId(spanId, 0, 16)) {
+            return;
+        }
+        char[] chars = new char[TRACEPARENT_LENGTH];
+        chars[0] = '0';
+        chars[1] = '0';
+        chars[2] = '-';
+        int padding = 32 - traceId.length();
+        for (int i = 0; i < padding; i++) {
+            chars[TRACE_ID_OFFSET + i] = '0';
+        }
+        traceId.getChars(0, traceId.length(), chars, TRACE_ID_OFFSET + padding);
+        chars[SPAN_ID_OFFSET - 1] = '-';
+        spanId.getChars(0, 16, chars, SPAN_ID_OFFSET);
+        chars[FLAGS_OFFSET - 1] = '-';
+        chars[FLAGS_OFFSET] = '0';
+        chars[FLAGS_OFFSET + 1] = Boolean.TRUE.equals(trace.sampled()) ? '1' : '0';
+        setter.set(carrier, TRACEPARENT, new String(chars));
+        if (trace.traceState() != null) {
+            setter.set(carrier, TRACESTATE, trace.traceState());
+        }
+    }
+}
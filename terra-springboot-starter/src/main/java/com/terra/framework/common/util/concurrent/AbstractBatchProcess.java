@@ -2,21 +2,54 @@ package com.terra.framework.common.util.concurrent;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * @author yangwt
  * @date 2023/6/2 09:37
  **/
 @Slf4j
-public abstract class AbstractBatchProcess<V> implements Runnable {
-    private final List<V> cache = new CopyOnWriteArrayList<>();
+public abstract class AbstractBatchProcess<V> implements Runnable, Drainable {
 
+    /**
+     * 时间轮线程上的任务被线程池拒绝时，间隔该时长后重新提交
+     */
+    private static final long REJECTED_RESUBMIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 接收通道，默认只有一个；分区等变体按消息路由到不同通道，每个通道拥有独立的缓冲区与刷写标记
+     */
+    private final Lane[] lanes;
+
+    /**
+     * 接收路径已不再加锁，保留给子类自行同步使用
+     */
     protected final Object lock = new Object();
 
-    private ScheduledExecutorService taskRunner;
+    /**
+     * 驱动刷写、重试与刷盘定时的运行时，默认为 {@link BatchRuntime#shared()}
+     */
+    private volatile BatchRuntime runtime;
+
+    /**
+     * 当前注册的周期任务，停止时取消
+     */
+    private final List<PeriodicTask> periodicTasks = new CopyOnWriteArrayList<>();
+
+    private volatile boolean stopped;
 
     /**
      * 单次消息写入最大数
@@ -30,86 +63,1465 @@ public abstract class AbstractBatchProcess<V> implements Runnable {
 
     protected ExecutorService executor;
 
-    {
-        executor = Executors.newFixedThreadPool(4, new CustomThreadFactory());
-        taskRunner = Executors.newSingleThreadScheduledExecutor();
-    }
+    /**
+     * executor 是否由构造参数传入，传入的线程池在 {@link #destroy()} 时关闭
+     */
+    private boolean ownsExecutor;
 
-    public AbstractBatchProcess() {
+    protected final BatchProcessConfig config;
+
+    /**
+     * 在途批次许可，限制提交到 executor 但尚未完成的批次数
+     */
+    private final Semaphore inFlightPermits;
+
+    /**
+     * 启用优先级通道并保留许可时，普通与低优先级批次额外占用的许可，数量为在途上限减去保留数
+     */
+    private final Semaphore sharedPermits;
+
+    /**
+     * 是否按优先级划分接收通道
+     */
+    private final boolean prioritized;
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder blockedCount = new LongAdder();
+
+    private final LongAdder blockedNanos = new LongAdder();
+
+    private final LongAdder callerRunsCount = new LongAdder();
+
+    /**
+     * 自适应控制器，未启用时为 null
+     */
+    private final AdaptiveBatchController adaptiveController;
+
+    /**
+     * 持久化模式的序列化器与预写日志，未启用时为 null
+     */
+    private final MessageSerializer<V> serializer;
+
+    private final MappedWriteAheadLog writeAheadLog;
+
+    /**
+     * 持久化模式下每个通道只在内存中保留日志位置的溢出消息数上限
+     */
+    private final int maxSpilledMessages;
+
+    private final AtomicBoolean recovered = new AtomicBoolean();
+
+    private final LongAdder spilledCount = new LongAdder();
+
+    private final LongAdder retriedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    /**
+     * 成功写入的消息数
+     */
+    private final LongAdder insertedCount = new LongAdder();
 
+    private volatile int drainPhase;
+
+    /**
+     * 重试与拆分后仍失败的消息的接收器，为 null 时只记录日志
+     */
+    private volatile DeadLetterSink<V> deadLetterSink;
+
+    /**
+     * 批处理器名称，用作指标标签与日志标识，未指定时为类名
+     */
+    private volatile String name;
+
+    private volatile BatchMetricsListener metricsListener;
+
+    /**
+     * 每次 batchInsert 的耗时（纳秒）
+     */
+    private final Log2Histogram flushLatency = new Log2Histogram();
+
+    /**
+     * 每次 batchInsert 的消息数
+     */
+    private final Log2Histogram batchSizes = new Log2Histogram();
+
+    public AbstractBatchProcess() {
+        this(new BatchProcessConfig());
     }
 
     public AbstractBatchProcess(int messageCacheCapacity, Duration persistDuration) {
-        this.messageCacheCapacity = messageCacheCapacity;
-        this.persistDuration = persistDuration;
+        this(new BatchProcessConfig(messageCacheCapacity, persistDuration));
     }
 
+    /**
+     * @deprecated 定时已由共享的 {@link BatchRuntime} 驱动，threadPoolTaskScheduler 不再使用
+     */
+    @Deprecated
     public AbstractBatchProcess(CustomThreadFactory threadPoolTaskScheduler, int messageCacheCapacity, Duration persistDuration) {
-        this.taskRunner = Executors.newSingleThreadScheduledExecutor(threadPoolTaskScheduler);
-        this.messageCacheCapacity = messageCacheCapacity;
-        this.persistDuration = persistDuration;
+        this(new BatchProcessConfig(messageCacheCapacity, persistDuration));
     }
 
+    /**
+     * @param executor 执行 batchInsert 的线程池，替代运行时的共享线程池，{@link #destroy()} 时关闭
+     * @deprecated 定时已由共享的 {@link BatchRuntime} 驱动，threadPoolTaskScheduler 不再使用
+     */
+    @Deprecated
     public AbstractBatchProcess(CustomThreadFactory threadPoolTaskScheduler, int messageCacheCapacity, Duration persistDuration, ExecutorService executor) {
-        this.taskRunner = Executors.newSingleThreadScheduledExecutor(threadPoolTaskScheduler);
-        this.messageCacheCapacity = messageCacheCapacity;
-        this.persistDuration = persistDuration;
+        this(new BatchProcessConfig(messageCacheCapacity, persistDuration));
         this.executor = executor;
+        this.ownsExecutor = true;
+    }
+
+    public AbstractBatchProcess(BatchProcessConfig config) {
+        this(config, 1, false, null);
+    }
+
+    /**
+     * @param serializer 持久化模式（{@link BatchProcessConfig#getDurable()}）使用的序列化器，未启用持久化时可为 null
+     */
+    public AbstractBatchProcess(BatchProcessConfig config, MessageSerializer<V> serializer) {
+        this(config, 1, false, serializer);
+    }
+
+    /**
+     * @param laneCount    接收通道数，缓冲消息上限在通道间平分
+     * @param orderedLanes 为 true 时每个通道同一时刻最多一个在途批次，保证通道内批次按写入顺序落库
+     */
+    @SuppressWarnings("unchecked")
+    AbstractBatchProcess(BatchProcessConfig config, int laneCount, boolean orderedLanes, MessageSerializer<V> serializer) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("laneCount must be positive: " + laneCount);
+        }
+        this.config = config;
+        this.runtime = BatchRuntime.shared();
+        this.executor = runtime.getExecutor();
+        this.messageCacheCapacity = config.getMessageCacheCapacity();
+        this.persistDuration = config.getPersistDuration();
+        int maxInFlight = Math.max(1, config.getMaxInFlightBatches());
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        BatchProcessConfig.PriorityConfig priority = config.getPriority();
+        this.prioritized = priority.isEnabled();
+        if (prioritized && (laneCount > 1 || orderedLanes)) {
+            throw new IllegalArgumentException("priority lanes cannot be combined with partitions");
+        }
+        int reserved = prioritized ? Math.max(0, Math.min(priority.getReservedInFlightBatches(), maxInFlight - 1)) : 0;
+        this.sharedPermits = reserved > 0 ? new Semaphore(maxInFlight - reserved) : null;
+        this.adaptiveController = config.getAdaptive().isEnabled()
+            ? new AdaptiveBatchController(config.getAdaptive(), config.getMessageCacheCapacity(), config.getPersistDuration())
+            : null;
+        this.writeAheadLog = openWriteAheadLog(config.getDurable(), serializer);
+        this.serializer = writeAheadLog != null ? serializer : null;
+        this.maxSpilledMessages = Math.max(1, config.getDurable().getMaxSpilledMessages() / laneCount);
+        int laneCapacity = Math.max(16, config.resolveMaxBufferedMessages() / laneCount);
+        if (prioritized) {
+            // 各优先级通道共享缓冲上限，低优先级只能使用其中一部分
+            this.lanes = newLanes(BatchPriority.values().length);
+            for (BatchPriority level : BatchPriority.values()) {
+                lanes[level.ordinal()] = new Lane(admissionLimit(laneCapacity, level, priority), false, level);
+            }
+        } else {
+            this.lanes = newLanes(laneCount);
+            for (int i = 0; i < laneCount; i++) {
+                lanes[i] = new Lane(laneCapacity, orderedLanes, null);
+            }
+        }
+    }
+
+    /**
+     * 内部类数组不能直接以参数化类型创建，先创建通配符数组再转换，数组只在本类内访问
+     */
+    @SuppressWarnings("unchecked")
+    private Lane[] newLanes(int length) {
+        return (Lane[]) new AbstractBatchProcess<?>.Lane[length];
     }
 
     public void process(V message) {
         if (!support(message)) {
             return;
         }
-        synchronized (lock) {
-            cache.add(message);
-            if (cache.size() < messageCacheCapacity) {
-                return;
+        accept(message, null);
+    }
+
+    /**
+     * 写入一条消息并返回其落库结果：包含该消息的批次写入成功后正常完成；消息被溢出策略丢弃、
+     * 重试与拆分后仍写入失败时异常完成. 多个调用线程的消息合并为一次 batchInsert，各自获得单条消息的结果.
+     *
+     * @return 消息不被 {@link #support(Object)} 接受时以 {@link IllegalArgumentException} 异常完成
+     */
+    public CompletableFuture<Void> submit(V message) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!support(message)) {
+            future.completeExceptionally(new IllegalArgumentException("message not supported: " + message));
+            return future;
+        }
+        accept(message, future);
+        return future;
+    }
+
+    private void accept(V message, CompletableFuture<Void> future) {
+        if (stopped) {
+            // 排空或停止后不再接收，计入丢弃
+            droppedCount.increment();
+            if (future != null) {
+                future.completeExceptionally(new RejectedExecutionException("batch process is stopped: " + getName()));
+            }
+            return;
+        }
+        Lane lane = lanes[laneIndex(message)];
+        // 先计入字节数再写入，保证刷写线程扣减时该消息已被计入
+        long weight = weighing() ? weigh(message) : 0;
+        lane.bufferedBytes.addAndGet(weight);
+        if (!lane.enqueue(message, future)) {
+            lane.releaseBytes(weight);
+            if (future != null) {
+                future.completeExceptionally(new RejectedExecutionException("message rejected by overflow policy " + config.getOverflowPolicy()));
             }
-            this.run();
+            return;
+        }
+        if (lane.isFull()) {
+            lane.flush();
+        }
+    }
+
+    private static MappedWriteAheadLog openWriteAheadLog(BatchProcessConfig.DurableConfig durable, MessageSerializer<?> serializer) {
+        if (!durable.isEnabled()) {
+            return null;
+        }
+        if (serializer == null || durable.getDirectory() == null) {
+            throw new IllegalArgumentException("durable mode requires a MessageSerializer and a directory");
+        }
+        try {
+            return new MappedWriteAheadLog(Paths.get(durable.getDirectory()), durable.getSegmentSize());
+        } catch (IOException e) {
+            throw new IllegalStateException("打开预写日志失败: " + durable.getDirectory(), e);
+        }
+    }
+
+    private static int admissionLimit(int capacity, BatchPriority level, BatchProcessConfig.PriorityConfig priority) {
+        double ratio = switch (level) {
+            case HIGH -> 1.0;
+            case NORMAL -> priority.getNormalAdmissionRatio();
+            case LOW -> priority.getLowAdmissionRatio();
+        };
+        return Math.max(1, (int) Math.ceil(capacity * Math.min(1.0, Math.max(0.0, ratio))));
+    }
+
+    /**
+     * 当前生效的单批消息数，自适应模式下由控制器决定
+     */
+    private int batchSize() {
+        return adaptiveController != null ? adaptiveController.getCurrentBatchSize() : messageCacheCapacity;
+    }
+
+    private boolean weighing() {
+        return config.getMaxBatchBytes() > 0;
+    }
+
+    /**
+     * 消息所属的接收通道下标，默认只有一个通道；启用优先级通道时按优先级划分
+     */
+    int laneIndex(V message) {
+        if (!prioritized) {
+            return 0;
+        }
+        BatchPriority priority = priority(message);
+        return (priority != null ? priority : BatchPriority.NORMAL).ordinal();
+    }
+
+    int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 创建接收通道的缓冲区，在构造期间调用. 缓冲区需要为每个元素携带附件（日志段或消息结果）
+     */
+    BatchBuffer<V> createBuffer(int capacity) {
+        return new MpscRingBuffer<>(capacity, true);
+    }
+
+    /**
+     * 合并两条消息的缓冲区附件：两条消息均由 {@link #submit(Object)} 写入时，后者的结果跟随前者完成
+     */
+    static Object mergeAttachments(Object previous, Object next) {
+        if (previous == null) {
+            return next;
+        }
+        if (next instanceof Ticket ticket && previous instanceof Ticket kept) {
+            kept.future().whenComplete((result, failure) -> {
+                if (failure != null) {
+                    ticket.future().completeExceptionally(failure);
+                } else {
+                    ticket.future().complete(result);
+                }
+            });
         }
+        return previous;
     }
 
     @Override
     public void run() {
         log.debug("定时批量处理消息-开始");
-        List<V> pendingMessages;
-        synchronized (lock) {
-            if (cache.isEmpty()) {
-                return;
+        for (Lane lane : lanes) {
+            lane.flush();
+        }
+        log.debug("定时批量处理消息-结束");
+    }
+
+    /**
+     * 执行一个批次：失败时按退避重试，重试耗尽后拆分隔离，仍失败的消息交给死信.
+     * 异步执行时退避通过调度器延迟重新提交，不占用工作线程；在调用线程中执行时直接休眠退避.
+     * 最后一次尝试结束后才向自适应控制器反馈一次，重试与拆分都不重复反馈.
+     *
+     * @param inline     是否在当前线程内完成全部重试
+     * @param completion 批次最终完成（成功或进入死信）后执行，重试期间批次仍占用在途许可
+     */
+    private void runBatch(Batch batch, int attempt, boolean inline, Runnable completion) {
+        long start = System.nanoTime();
+        Throwable failure;
+        while ((failure = insert(batch)) != null && attempt < config.getRetry().getMaxAttempts()) {
+            retriedCount.increment();
+            BatchMetricsListener listener = metricsListener;
+            if (listener != null) {
+                listener.onRetried(getName(), batch.size());
+            }
+            long backoff = backoffNanos(attempt++);
+            log.warn("批量处理消息失败，{}ms 后第{}次尝试，消息长度:{}",
+                TimeUnit.NANOSECONDS.toMillis(backoff), attempt, batch.size());
+            if (inline) {
+                LockSupport.parkNanos(backoff);
+                start = System.nanoTime();
+                continue;
             }
-            pendingMessages = new CopyOnWriteArrayList<>(cache);
-            cache.clear();
+            int nextAttempt = attempt;
+            scheduleRetry(() -> runBatch(batch, nextAttempt, false, completion), backoff);
+            return;
         }
-        executor.execute(() -> {
-            if (pendingMessages.isEmpty()) {
-                return;
+        if (adaptiveController != null) {
+            adaptiveController.onBatchComplete(batch.size(), System.nanoTime() - start, failure == null);
+        }
+        try {
+            if (failure != null) {
+                isolate(batch, failure);
             }
-            try {
-                log.info("批量处理消息，消息长度:{}", pendingMessages.size());
-                this.batchInsert(pendingMessages);
-                log.info("批量处理消息完成");
-            } catch (Exception e) {
-                log.error("批量处理消息异常", e);
-                throw e;
-            }
-        });
-        log.debug("定时批量处理消息-结束");
+        } finally {
+            completion.run();
+        }
+    }
+
+    /**
+     * 调用一次 batchInsert，成功时确认批次
+     *
+     * @return 失败原因，成功时为 null
+     */
+    private Throwable insert(Batch batch) {
+        List<V> pendingMessages = batch.messages;
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            log.info("批量处理消息，消息长度:{}", pendingMessages.size());
+            this.batchInsert(pendingMessages);
+            success = true;
+            insertedCount.add(pendingMessages.size());
+            batch.acknowledge();
+            log.info("批量处理消息完成");
+            return null;
+        } catch (Exception e) {
+            log.error("批量处理消息异常", e);
+            return e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            flushLatency.record(elapsed);
+            batchSizes.record(pendingMessages.size());
+            BatchMetricsListener listener = metricsListener;
+            if (listener != null) {
+                listener.onBatch(getName(), pendingMessages.size(), batch.bytes, elapsed, success);
+            }
+        }
+    }
+
+    /**
+     * 重试耗尽的批次：启用拆分时对半拆分逐个尝试，直到隔离出单条失败的消息，其余消息正常写入.
+     * 原批次的失败已反馈给自适应控制器，拆分过程不再反馈
+     */
+    private void isolate(Batch batch, Throwable failure) {
+        if (!config.getRetry().isSplitOnFailure() || batch.size() <= 1) {
+            deadLetter(batch, failure);
+            return;
+        }
+        int middle = batch.size() >>> 1;
+        retryHalf(batch.slice(0, middle));
+        retryHalf(batch.slice(middle, batch.size()));
+    }
+
+    private void retryHalf(Batch half) {
+        Throwable failure = insert(half);
+        if (failure != null) {
+            isolate(half, failure);
+        }
+    }
+
+    private void deadLetter(Batch batch, Throwable failure) {
+        failedCount.add(batch.size());
+        BatchMetricsListener listener = metricsListener;
+        if (listener != null) {
+            listener.onFailed(getName(), batch.size());
+        }
+        batch.fail(failure);
+        DeadLetterSink<V> sink = this.deadLetterSink;
+        if (sink == null) {
+            // 持久化模式下未确认的消息保留在日志中，下次启动时回放
+            log.error("批量处理消息失败，消息长度:{}", batch.size());
+            return;
+        }
+        try {
+            sink.accept(batch.messages, failure);
+            batch.acknowledge();
+        } catch (Exception e) {
+            log.error("死信处理异常，消息长度:{}", batch.size(), e);
+        }
+    }
+
+    private long backoffNanos(int attempt) {
+        BatchProcessConfig.RetryConfig retry = config.getRetry();
+        double backoff = retry.getInitialBackoff().toNanos() * Math.pow(retry.getMultiplier(), attempt - 1);
+        backoff = Math.min(backoff, retry.getMaxBackoff().toNanos());
+        double jitter = Math.min(1.0, Math.max(0.0, retry.getJitter()));
+        backoff *= 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(0L, (long) backoff);
+    }
+
+    /**
+     * 退避结束后将重试重新提交到工作线程；调度器或工作线程已关闭时在当前线程执行
+     */
+    private void scheduleRetry(Runnable retry, long delayNanos) {
+        try {
+            runtime.getTimer().newTimeout(() -> executeOrRun(retry), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            LockSupport.parkNanos(delayNanos);
+            retry.run();
+        }
     }
 
     protected void schedule() {
-        this.taskRunner.scheduleAtFixedRate(this, 10, this.persistDuration.getSeconds(), TimeUnit.SECONDS);
+        recover();
+        if (writeAheadLog != null) {
+            // 刷盘可能较慢，转交工作线程执行，不占用时间轮线程
+            long forceInterval = Math.max(1L, config.getDurable().getForceInterval().toNanos());
+            periodicTasks.add(new PeriodicTask(() -> executeOrRun(writeAheadLog::force), () -> forceInterval));
+        }
+        if (prioritized) {
+            // 各优先级通道按各自的刷写间隔调度
+            for (Lane lane : lanes) {
+                periodicTasks.add(new PeriodicTask(lane::flush, lane::lingerNanos));
+            }
+        } else {
+            // 自适应模式下每次按控制器当前的刷写间隔重新调度
+            periodicTasks.add(new PeriodicTask(this, () -> Math.max(TimeUnit.MILLISECONDS.toNanos(1), getCurrentLinger().toNanos())));
+        }
+        for (PeriodicTask task : periodicTasks) {
+            task.schedule();
+        }
     }
 
-    protected void destroy() throws Exception {
+    private void executeOrRun(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            runOffTimer(task, () -> executeOrRun(task));
+        }
+    }
+
+    /**
+     * 线程池拒绝后的兜底：一般在调用线程执行 task；调用线程为共享的时间轮线程时改为稍后在时间轮上执行 resubmit，
+     * 避免一个慢输出端阻塞所有处理器的定时刷写、重试与 span 超时. 时间轮已停止时仍在当前线程执行
+     */
+    private void runOffTimer(Runnable task, Runnable resubmit) {
+        HashedWheelTimer timer = runtime.getTimer();
+        if (timer.isWorkerThread()) {
+            try {
+                timer.newTimeout(resubmit, REJECTED_RESUBMIT_NANOS, TimeUnit.NANOSECONDS);
+                return;
+            } catch (RejectedExecutionException ignored) {
+                log.debug("批量处理运行时已关闭，由当前线程执行");
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * 持久化模式下回放启动前未确认的消息，由 {@link #schedule()} 调用，只执行一次.
+     * 回放的消息重新写入预写日志后再删除旧段，语义为至少一次，batchInsert 需要幂等.
+     */
+    protected void recover() {
+        if (writeAheadLog == null || !recovered.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int replayed = writeAheadLog.replay(bytes -> process(serializer.deserialize(bytes)));
+            if (replayed > 0) {
+                log.info("预写日志回放完成，消息数:{}", replayed);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("回放预写日志失败", e);
+        }
+    }
+
+    /**
+     * 停止接收新消息并刷写全部缓冲的消息，等待在途批次完成，超时后返回. 之后写入的消息计入丢弃，
+     * 由 {@link #submit(Object)} 写入的以 {@link RejectedExecutionException} 异常完成
+     */
+    @Override
+    public DrainReport drain(Duration timeout) {
+        long start = System.nanoTime();
+        long inserted = insertedCount.sum();
+        long failed = failedCount.sum();
+        long dropped = droppedCount.sum();
+        stopped = true;
+        for (PeriodicTask task : periodicTasks) {
+            task.cancel();
+        }
         this.run();
-        taskRunner.awaitTermination(3L, TimeUnit.SECONDS);
-        taskRunner.shutdown();
-        taskRunner.awaitTermination(3L, TimeUnit.SECONDS);
-        executor.shutdown();
+        awaitInFlight(timeout.toNanos());
+        return new DrainReport(getName(), insertedCount.sum() - inserted, failedCount.sum() - failed,
+            droppedCount.sum() - dropped, getBufferedCount(), getInFlightBatches(), Duration.ofNanos(System.nanoTime() - start));
     }
 
-    protected abstract Boolean support(V message);
+    protected void destroy() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        DrainReport report = drain(Duration.ofNanos(deadline - System.nanoTime()));
+        if (!report.isComplete()) {
+            log.warn("批处理器[{}]关闭时未排空，剩余消息:{}，在途批次:{}", getName(), report.remaining(), report.inFlightBatches());
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("批处理器[{}]线程池未在期限内结束", getName());
+            }
+        }
+        if (writeAheadLog != null) {
+            // 未完成的消息保留在日志中，下次启动时回放
+            writeAheadLog.close();
+        }
+    }
 
-    protected abstract Boolean batchInsert(List<V> messages);
+    /**
+     * 等待在途批次完成，期间补做因在途上限未能取走的剩余消息，超时后返回
+     */
+    private void awaitInFlight(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while ((getInFlightBatches() > 0 || getBufferedCount() > 0) && deadline - System.nanoTime() > 0) {
+            if (getInFlightBatches() == 0) {
+                this.run();
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 切换到指定的运行时，需在 {@link #schedule()} 之前调用；构造时传入的线程池保持不变
+     */
+    public void setBatchRuntime(BatchRuntime runtime) {
+        if (!periodicTasks.isEmpty()) {
+            throw new IllegalStateException("batch process is already scheduled");
+        }
+        this.runtime = runtime;
+        if (!ownsExecutor) {
+            this.executor = runtime.getExecutor();
+        }
+    }
+
+    public BatchRuntime getBatchRuntime() {
+        return runtime;
+    }
+
+    /**
+     * 当前缓冲的消息数
+     */
+    public int getBufferedCount() {
+        int buffered = 0;
+        for (Lane lane : lanes) {
+            buffered += lane.pending();
+        }
+        return buffered;
+    }
+
+    /**
+     * 指定优先级通道当前缓冲的消息数，未启用优先级通道时所有消息计入 {@link BatchPriority#NORMAL}
+     */
+    public int getBufferedCount(BatchPriority priority) {
+        if (!prioritized) {
+            return priority == BatchPriority.NORMAL ? getBufferedCount() : 0;
+        }
+        return lanes[priority.ordinal()].pending();
+    }
+
+    /**
+     * 已提交但尚未完成的批次数
+     */
+    public int getInFlightBatches() {
+        return Math.max(1, config.getMaxInFlightBatches()) - inFlightPermits.availablePermits();
+    }
+
+    /**
+     * 当前生效的单批消息数
+     */
+    public int getCurrentBatchSize() {
+        return batchSize();
+    }
+
+    /**
+     * 当前生效的刷写间隔
+     */
+    public Duration getCurrentLinger() {
+        return adaptiveController != null ? adaptiveController.getCurrentLinger() : persistDuration;
+    }
+
+    /**
+     * 自适应控制器，未启用自适应时为 null
+     */
+    public AdaptiveBatchController getAdaptiveController() {
+        return adaptiveController;
+    }
+
+    /**
+     * 持久化模式下因内存缓冲区已满而只保存在预写日志中的消息数
+     */
+    public long getSpilledCount() {
+        return spilledCount.sum();
+    }
+
+    /**
+     * 因溢出策略或停止接收后写入而被丢弃的消息数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * 指定优先级通道因溢出策略被丢弃的消息数，未启用优先级通道时所有消息计入 {@link BatchPriority#NORMAL}
+     */
+    public long getDroppedCount(BatchPriority priority) {
+        if (!prioritized) {
+            return priority == BatchPriority.NORMAL ? getDroppedCount() : 0;
+        }
+        return lanes[priority.ordinal()].droppedCount.sum();
+    }
+
+    /**
+     * {@link OverflowPolicy#BLOCK} 下调用线程被阻塞的次数
+     */
+    public long getBlockedCount() {
+        return blockedCount.sum();
+    }
+
+    /**
+     * {@link OverflowPolicy#BLOCK} 下调用线程累计阻塞时间
+     */
+    public Duration getBlockedTime() {
+        return Duration.ofNanos(blockedNanos.sum());
+    }
+
+    /**
+     * {@link OverflowPolicy#CALLER_RUNS} 下由调用线程执行写入的次数
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount.sum();
+    }
+
+    /**
+     * 失败后重试的次数
+     */
+    public long getRetriedCount() {
+        return retriedCount.sum();
+    }
+
+    /**
+     * 重试与拆分后仍写入失败的消息数
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * 设置死信接收器，未设置时失败的消息只记录日志；持久化模式下未设置时失败的消息保留在日志中等待下次启动回放
+     */
+    public void setDeadLetterSink(DeadLetterSink<V> deadLetterSink) {
+        this.deadLetterSink = deadLetterSink;
+    }
+
+    @Override
+    public int getDrainPhase() {
+        return drainPhase;
+    }
+
+    /**
+     * 排空阶段，阶段大的先排空，默认为0
+     */
+    public void setDrainPhase(int drainPhase) {
+        this.drainPhase = drainPhase;
+    }
+
+    /**
+     * 成功写入的消息数
+     */
+    public long getInsertedCount() {
+        return insertedCount.sum();
+    }
+
+    /**
+     * 批处理器名称，未指定时为类名
+     */
+    @Override
+    public String getName() {
+        String current = name;
+        if (current != null) {
+            return current;
+        }
+        String simpleName = getClass().getSimpleName();
+        return simpleName.isEmpty() ? getClass().getName() : simpleName;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 是否已通过 {@link #setName(String)} 指定名称
+     */
+    public boolean isNamed() {
+        return name != null;
+    }
+
+    /**
+     * 设置逐事件指标回调，用于转交给 Micrometer 等监控系统
+     */
+    public void setMetricsListener(BatchMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * batchInsert 耗时分布（纳秒），含重试与拆分的每次调用
+     */
+    public Log2Histogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    /**
+     * batchInsert 消息数分布
+     */
+    public Log2Histogram getBatchSizeDistribution() {
+        return batchSizes;
+    }
+
+    /**
+     * 当前缓冲消息的估算字节数，仅在配置 {@link BatchProcessConfig#getMaxBatchBytes()} 后统计
+     */
+    public long getBufferedBytes() {
+        long bytes = 0;
+        for (Lane lane : lanes) {
+            bytes += lane.bufferedBytes.get();
+        }
+        return bytes;
+    }
+
+    /**
+     * 估算消息的字节数，配置 {@link BatchProcessConfig#getMaxBatchBytes()} 后用于按字节切批，默认为0
+     */
+    protected int weigh(V message) {
+        return 0;
+    }
+
+    /**
+     * 消息的优先级，启用 {@link BatchProcessConfig.PriorityConfig} 后生效，返回 null 时按 {@link BatchPriority#NORMAL}
+     */
+    protected BatchPriority priority(V message) {
+        return BatchPriority.NORMAL;
+    }
+
+    protected abstract Boolean support(V message);
+
+    protected abstract Boolean batchInsert(List<V> messages);
+
+    /**
+     * 时间轮上的周期任务，每次执行后按 period 的当前值重新注册
+     */
+    private final class PeriodicTask implements Runnable {
+
+        private final Runnable task;
+
+        private final LongSupplier periodNanos;
+
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private PeriodicTask(Runnable task, LongSupplier periodNanos) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+        }
+
+        private void schedule() {
+            if (stopped) {
+                return;
+            }
+            try {
+                timeout = runtime.getTimer().newTimeout(this, periodNanos.getAsLong(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("批量处理运行时已关闭");
+            }
+        }
+
+        private void cancel() {
+            HashedWheelTimer.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * 一次 batchInsert 的消息，持久化模式下同时记录每条消息所在的日志段用于确认.
+     */
+    private final class Batch {
+
+        private final List<V> messages;
+
+        private final List<MappedWriteAheadLog.Segment> segments;
+
+        /**
+         * 与消息一一对应的结果，批次中没有 {@link #submit(Object)} 写入的消息时为 null
+         */
+        private List<CompletableFuture<Void>> futures;
+
+        /**
+         * 消息的估算字节数之和，未按字节切批时为0
+         */
+        private long bytes;
+
+        private Batch(int expectedSize) {
+            this.messages = new ArrayList<>(expectedSize);
+            this.segments = writeAheadLog != null ? new ArrayList<>(expectedSize) : null;
+        }
+
+        private Batch(List<V> messages, List<MappedWriteAheadLog.Segment> segments, List<CompletableFuture<Void>> futures) {
+            this.messages = messages;
+            this.segments = segments;
+            this.futures = futures;
+        }
+
+        /**
+         * 批次中 [from, to) 区间的子批次，与原批次共享底层列表
+         */
+        private Batch slice(int from, int to) {
+            return new Batch(messages.subList(from, to),
+                segments != null ? segments.subList(from, to) : null,
+                futures != null ? futures.subList(from, to) : null);
+        }
+
+        /**
+         * @param attachment 缓冲区槽位附件：日志段或 {@link Ticket}
+         */
+        private void add(V message, Object attachment) {
+            if (attachment instanceof Ticket ticket) {
+                add(message, ticket.segment(), ticket.future());
+            } else {
+                add(message, (MappedWriteAheadLog.Segment) attachment, null);
+            }
+        }
+
+        private void add(V message, MappedWriteAheadLog.Segment segment, CompletableFuture<Void> future) {
+            if (future != null && futures == null) {
+                futures = new ArrayList<>(Math.max(10, messages.size() + 1));
+                for (int i = 0; i < messages.size(); i++) {
+                    futures.add(null);
+                }
+            }
+            messages.add(message);
+            if (weighing()) {
+                bytes += weigh(message);
+            }
+            if (segments != null) {
+                segments.add(segment);
+            }
+            if (futures != null) {
+                futures.add(future);
+            }
+        }
+
+        private void fail(Throwable failure) {
+            if (futures == null) {
+                return;
+            }
+            for (CompletableFuture<Void> future : futures) {
+                if (future != null) {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return messages.isEmpty();
+        }
+
+        private int size() {
+            return messages.size();
+        }
+
+        /**
+         * 是否已达到消息数或字节数上限
+         */
+        private boolean isFull(int capacity) {
+            return messages.size() >= capacity || (weighing() && bytes >= config.getMaxBatchBytes());
+        }
+
+        /**
+         * 写入成功后完成消息结果，并按段合并确认
+         */
+        private void acknowledge() {
+            if (futures != null) {
+                for (CompletableFuture<Void> future : futures) {
+                    if (future != null) {
+                        future.complete(null);
+                    }
+                }
+            }
+            if (segments == null) {
+                return;
+            }
+            MappedWriteAheadLog.Segment current = null;
+            int count = 0;
+            for (MappedWriteAheadLog.Segment segment : segments) {
+                if (segment != current) {
+                    if (current != null) {
+                        current.acknowledge(count);
+                    }
+                    current = segment;
+                    count = 0;
+                }
+                count++;
+            }
+            if (current != null) {
+                current.acknowledge(count);
+            }
+        }
+    }
+
+    /**
+     * {@link #submit(Object)} 写入的消息在缓冲区槽位中的附件
+     */
+    private record Ticket(MappedWriteAheadLog.Segment segment, CompletableFuture<Void> future) {
+    }
+
+    /**
+     * 溢出到预写日志的消息
+     */
+    private record Spilled(MappedWriteAheadLog.Position position, CompletableFuture<Void> future) {
+    }
+
+    /**
+     * 接收通道：无锁缓冲区、单消费者刷写标记以及溢出策略的执行.
+     */
+    private final class Lane {
+
+        /**
+         * 无锁接收缓冲区
+         */
+        private final BatchBuffer<V> buffer;
+
+        /**
+         * 持久化模式下溢出到预写日志的消息位置，内存缓冲区取空后按顺序读回
+         */
+        private final Queue<Spilled> spilled;
+
+        private final AtomicInteger spilledPending = new AtomicInteger();
+
+        /**
+         * 缓冲消息的估算字节数，合并等场景下为近似值
+         */
+        private final AtomicLong bufferedBytes = new AtomicLong();
+
+        /**
+         * 缓冲消息数硬上限
+         */
+        private final int maxBufferedMessages;
+
+        /**
+         * 刷写标记，保证同一时刻只有一个线程消费 {@link #buffer}
+         */
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        /**
+         * 有序通道是否有在途批次
+         */
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        /**
+         * 有序通道忙碌期间收到的刷写请求，在途批次完成后补做
+         */
+        private volatile boolean flushRequested;
+
+        private final boolean ordered;
+
+        /**
+         * 通道优先级，未启用优先级通道时为 null
+         */
+        private final BatchPriority priority;
+
+        /**
+         * 除 {@link #inFlightPermits} 外还需占用的许可，高优先级通道或未保留许可时为 null
+         */
+        private final Semaphore extraPermits;
+
+        private final LongAdder droppedCount = new LongAdder();
+
+        private Lane(int maxBufferedMessages, boolean ordered, BatchPriority priority) {
+            this.maxBufferedMessages = maxBufferedMessages;
+            this.buffer = createBuffer(maxBufferedMessages);
+            this.spilled = writeAheadLog != null ? new ConcurrentLinkedQueue<>() : null;
+            this.ordered = ordered;
+            this.priority = priority;
+            this.extraPermits = priority != BatchPriority.HIGH ? sharedPermits : null;
+        }
+
+        /**
+         * 通道的单批消息数，高、低优先级通道可单独配置
+         */
+        private int batchSize() {
+            BatchProcessConfig.PriorityConfig config = AbstractBatchProcess.this.config.getPriority();
+            int size = priority == BatchPriority.HIGH ? config.getHighBatchSize()
+                : priority == BatchPriority.LOW ? config.getLowBatchSize() : 0;
+            return size > 0 ? size : AbstractBatchProcess.this.batchSize();
+        }
+
+        /**
+         * 通道的刷写间隔，高、低优先级通道可单独配置
+         */
+        private long lingerNanos() {
+            BatchProcessConfig.PriorityConfig config = AbstractBatchProcess.this.config.getPriority();
+            Duration linger = priority == BatchPriority.HIGH ? config.getHighLinger()
+                : priority == BatchPriority.LOW ? config.getLowLinger() : null;
+            return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (linger != null ? linger : getCurrentLinger()).toNanos());
+        }
+
+        private boolean tryAcquirePermit() {
+            if (extraPermits != null && !extraPermits.tryAcquire()) {
+                return false;
+            }
+            if (inFlightPermits.tryAcquire()) {
+                return true;
+            }
+            if (extraPermits != null) {
+                extraPermits.release();
+            }
+            return false;
+        }
+
+        private void releasePermit() {
+            inFlightPermits.release();
+            if (extraPermits != null) {
+                extraPermits.release();
+            }
+        }
+
+        private boolean hasPermit() {
+            return inFlightPermits.availablePermits() > 0 && (extraPermits == null || extraPermits.availablePermits() > 0);
+        }
+
+        private void drop() {
+            droppedCount.increment();
+            AbstractBatchProcess.this.droppedCount.increment();
+            BatchMetricsListener listener = metricsListener;
+            if (listener != null) {
+                listener.onDropped(getName(), priority != null ? priority : BatchPriority.NORMAL);
+            }
+        }
+
+        /**
+         * 启用优先级通道时所有通道的缓冲消息总数，否则为本通道的缓冲消息数
+         */
+        private int occupancy() {
+            if (!prioritized) {
+                return buffer.size();
+            }
+            int total = 0;
+            for (Lane lane : lanes) {
+                total += lane.buffer.size();
+            }
+            return total;
+        }
+
+        /**
+         * 待刷写的消息数，含溢出到预写日志的部分
+         */
+        private int pending() {
+            return buffer.size() + spilledPending.get();
+        }
+
+        /**
+         * 缓冲的消息是否已够一个完整批次
+         */
+        private boolean isFull() {
+            return pending() >= batchSize() || (weighing() && bufferedBytes.get() >= config.getMaxBatchBytes());
+        }
+
+        private void releaseBytes(long bytes) {
+            if (bytes != 0 && bufferedBytes.addAndGet(-bytes) < 0) {
+                bufferedBytes.set(0);
+            }
+        }
+
+        /**
+         * 写入缓冲区，写满时按 {@link OverflowPolicy} 处理.
+         *
+         * @return 消息是否被接收
+         */
+        private boolean enqueue(V message, CompletableFuture<Void> future) {
+            if (writeAheadLog != null) {
+                return enqueueDurable(message, future);
+            }
+            Ticket ticket = future != null ? new Ticket(null, future) : null;
+            OverflowPolicy policy = config.getOverflowPolicy();
+            if (policy == OverflowPolicy.SAMPLE && isUnderPressure()
+                && ThreadLocalRandom.current().nextDouble() >= config.getPressureSampleRate()) {
+                drop();
+                return false;
+            }
+            if (offer(message, ticket)) {
+                return true;
+            }
+            // 先尝试刷写腾出空间，在途批次已满时刷写不会取走消息
+            flush();
+            if (offer(message, ticket)) {
+                return true;
+            }
+            switch (policy) {
+                case BLOCK:
+                    return offerBlocking(() -> offer(message, ticket));
+                case DROP_OLDEST:
+                    return offerDroppingOldest(message, ticket);
+                case CALLER_RUNS:
+                    return offerCallerRuns(() -> offer(message, ticket), message, ticket);
+                default:
+                    drop();
+                    return false;
+            }
+        }
+
+        private boolean offer(V message, Ticket ticket) {
+            // 合并到已缓冲的键不占用新的容量，缓冲区已满时也应接收
+            if (buffer.merge(message, ticket)) {
+                return true;
+            }
+            // 启用优先级通道时按所有通道的缓冲总数判断，低优先级通道的上限更低，承压时先被拒绝
+            return buffer.size() < maxBufferedMessages && (!prioritized || occupancy() < maxBufferedMessages)
+                && buffer.offer(message, ticket);
+        }
+
+        /**
+         * 先写预写日志再进入内存缓冲区；缓冲区已满或已有溢出消息时只保留日志位置，保证读回顺序.
+         * 溢出消息达到上限时按溢出策略处理，被拒绝的消息不写入日志
+         */
+        private boolean enqueueDurable(V message, CompletableFuture<Void> future) {
+            if (spilledPending.get() >= maxSpilledMessages && !admitSpill()) {
+                return false;
+            }
+            MappedWriteAheadLog.Position position;
+            try {
+                position = writeAheadLog.append(serializer.serialize(message));
+            } catch (RuntimeException e) {
+                log.error("写入预写日志失败，丢弃消息", e);
+                drop();
+                return false;
+            }
+            Object attachment = future != null ? new Ticket(position.segment(), future) : position.segment();
+            if (spilledPending.get() == 0 && buffer.size() < maxBufferedMessages
+                && buffer.offer(message, attachment)) {
+                return true;
+            }
+            spilledPending.incrementAndGet();
+            spilled.add(new Spilled(position, future));
+            spilledCount.increment();
+            return true;
+        }
+
+        /**
+         * 溢出消息达到上限时腾出位置：BLOCK 限时等待，CALLER_RUNS 由调用线程写入，DROP_OLDEST 丢弃最早溢出的消息，
+         * 其余策略丢弃当前消息
+         *
+         * @return 是否可以继续写入
+         */
+        private boolean admitSpill() {
+            BooleanSupplier hasRoom = () -> spilledPending.get() < maxSpilledMessages;
+            flush();
+            if (hasRoom.getAsBoolean()) {
+                return true;
+            }
+            switch (config.getOverflowPolicy()) {
+                case BLOCK:
+                    return offerBlocking(hasRoom);
+                case DROP_OLDEST:
+                    dropOldestSpilled();
+                    return true;
+                case CALLER_RUNS:
+                    return offerCallerRuns(hasRoom, null, null);
+                default:
+                    drop();
+                    return false;
+            }
+        }
+
+        /**
+         * 丢弃最早溢出的消息并确认其日志记录，使所在段可以删除
+         */
+        private void dropOldestSpilled() {
+            Spilled oldest = spilled.poll();
+            if (oldest == null) {
+                return;
+            }
+            spilledPending.decrementAndGet();
+            MappedWriteAheadLog.Position position = oldest.position();
+            if (weighing()) {
+                releaseBytes(weigh(serializer.deserialize(position.read())));
+            }
+            position.segment().acknowledge(1);
+            drop();
+            if (oldest.future() != null) {
+                oldest.future().completeExceptionally(new RejectedExecutionException("message dropped by overflow policy " + OverflowPolicy.DROP_OLDEST));
+            }
+        }
+
+        private boolean isUnderPressure() {
+            return occupancy() >= maxBufferedMessages * config.getPressureThreshold();
+        }
+
+        /**
+         * @param offer 尝试写入，返回是否成功
+         */
+        private boolean offerBlocking(BooleanSupplier offer) {
+            blockedCount.increment();
+            long start = System.nanoTime();
+            long deadline = start + config.getBlockTimeout().toNanos();
+            long parkNanos = TimeUnit.MICROSECONDS.toNanos(10);
+            try {
+                while (true) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                        drop();
+                        return false;
+                    }
+                    LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                    parkNanos = Math.min(parkNanos << 1, TimeUnit.MILLISECONDS.toNanos(1));
+                    flush();
+                    if (offer.getAsBoolean()) {
+                        return true;
+                    }
+                }
+            } finally {
+                long blocked = System.nanoTime() - start;
+                blockedNanos.add(blocked);
+                BatchMetricsListener listener = metricsListener;
+                if (listener != null) {
+                    listener.onBlocked(getName(), blocked);
+                }
+            }
+        }
+
+        private boolean offerDroppingOldest(V message, Ticket ticket) {
+            while (!offer(message, ticket)) {
+                if (draining.compareAndSet(false, true)) {
+                    try {
+                        if (buffer.drain(this::dropOldest, 1) == 0 && prioritized && buffer.size() == 0) {
+                            // 本通道已空，空间被更高优先级的消息占用，丢弃当前消息
+                            drop();
+                            return false;
+                        }
+                    } finally {
+                        draining.set(false);
+                    }
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+            return true;
+        }
+
+        private void dropOldest(V message, Object attachment) {
+            drop();
+            if (weighing()) {
+                releaseBytes(weigh(message));
+            }
+            if (attachment instanceof Ticket ticket) {
+                ticket.future().completeExceptionally(new RejectedExecutionException("message dropped by overflow policy " + OverflowPolicy.DROP_OLDEST));
+            }
+        }
+
+        /**
+         * @param offer   尝试写入，返回是否成功
+         * @param message 当前消息，为 null 时（持久化模式的溢出限制）不由调用线程直接写入
+         */
+        private boolean offerCallerRuns(BooleanSupplier offer, V message, Ticket ticket) {
+            callerRunsCount.increment();
+            while (!offer.getAsBoolean()) {
+                // 有序通道需等在途批次完成，避免调用线程与工作线程并发写入同一通道
+                if (ordered && !busy.compareAndSet(false, true)) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                try {
+                    if (draining.compareAndSet(false, true)) {
+                        Batch batch;
+                        try {
+                            batch = pollBatch();
+                        } finally {
+                            draining.set(false);
+                        }
+                        if (!batch.isEmpty()) {
+                            runBatch(batch, 1, true, () -> {
+                            });
+                        } else if (message != null && prioritized && buffer.size() == 0) {
+                            // 本通道已空，空间被更高优先级的消息占用，由调用线程直接写入当前消息
+                            batch.add(message, ticket);
+                            releaseBytes(batch.bytes);
+                            runBatch(batch, 1, true, () -> {
+                            });
+                            return true;
+                        }
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                } finally {
+                    if (ordered) {
+                        busy.set(false);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void flush() {
+            do {
+                if (!draining.compareAndSet(false, true)) {
+                    // 其他线程正在刷写，本次写入的消息会在其循环或下一次调度中被取走
+                    return;
+                }
+                try {
+                    drain();
+                } finally {
+                    draining.set(false);
+                }
+                // 释放刷写标记后再检查一次，避免在释放前后写满的消息等到下一个周期
+            } while (isFull() && hasPermit()
+                && !(ordered && busy.get()));
+        }
+
+        /**
+         * 按 {@link #batchSize()} 切分并提交缓冲区内所有已发布的消息，调用方需持有刷写标记.
+         * 在途批次达到上限或有序通道忙碌时停止，剩余消息留在缓冲区.
+         */
+        private void drain() {
+            while (pending() > 0) {
+                if (ordered) {
+                    // 先登记请求再抢占，保证与批次完成时的检查不会互相错过
+                    flushRequested = true;
+                    if (!busy.compareAndSet(false, true)) {
+                        return;
+                    }
+                    flushRequested = false;
+                }
+                if (!tryAcquirePermit()) {
+                    release();
+                    return;
+                }
+                Batch batch = pollBatch();
+                if (batch.isEmpty()) {
+                    releasePermit();
+                    release();
+                    return;
+                }
+                submit(batch);
+                if (ordered || !batch.isFull(batchSize())) {
+                    return;
+                }
+            }
+        }
+
+        private Batch pollBatch() {
+            int capacity = Math.max(1, batchSize());
+            Batch batch = new Batch(Math.min(pending(), capacity));
+            if (weighing()) {
+                // 按字节切批时逐条取出，达到字节上限即停止
+                while (!batch.isFull(capacity) && buffer.drain(batch::add, 1) > 0) {
+                    // 继续取下一条
+                }
+            } else {
+                buffer.drain(batch::add, capacity);
+            }
+            if (spilled != null) {
+                // 溢出的消息晚于缓冲区内的消息写入，缓冲区取空后再从日志读回
+                Spilled entry;
+                while (!batch.isFull(capacity) && (entry = spilled.poll()) != null) {
+                    spilledPending.decrementAndGet();
+                    MappedWriteAheadLog.Position position = entry.position();
+                    batch.add(serializer.deserialize(position.read()), position.segment(), entry.future());
+                }
+            }
+            if (weighing()) {
+                releaseBytes(batch.bytes);
+                if (pending() == 0) {
+                    // 合并后的消息字节数小于写入时的累计值，缓冲区取空时校正
+                    bufferedBytes.set(0);
+                }
+            }
+            return batch;
+        }
+
+        private void submit(Batch batch) {
+            try {
+                executor.execute(() -> runBatch(batch, 1, false, this::complete));
+            } catch (RejectedExecutionException e) {
+                // 批次仍占用在途许可，在时间轮上重新提交时不会与后续批次乱序
+                runOffTimer(() -> {
+                    log.warn("批量处理线程池拒绝任务，由当前线程执行，消息长度:{}", batch.size());
+                    runBatch(batch, 1, true, () -> {
+                        releasePermit();
+                        release();
+                    });
+                }, () -> submit(batch));
+            }
+        }
+
+        private void complete() {
+            releasePermit();
+            release();
+            if (isFull() || (ordered && flushRequested && pending() > 0)) {
+                flush();
+            }
+            if (prioritized) {
+                // 释放的许可可能正被其他通道等待，按优先级从高到低补做刷写
+                for (Lane lane : lanes) {
+                    if (lane != this && lane.isFull()) {
+                        lane.flush();
+                    }
+                }
+            }
+        }
+
+        private void release() {
+            if (ordered) {
+                busy.set(false);
+            }
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.time.Duration;
+
+/**
+ * 按键合并的批处理器.
+ * <p>
+ * 适用于只关心每个键在一个刷写窗口内最终值的消息（计数、最后访问时间等）：同一个键在缓冲区中最多保留一条，
+ * 窗口内多次写入通过 {@link #merge(Object, Object)} 合并，缓冲区上限按键数量计算.
+ * 合并后的消息没有写入顺序，{@link OverflowPolicy#DROP_OLDEST} 丢弃的是任意一个已缓冲的键；
+ * 由于被合并的消息无法单独确认，不支持持久化模式.
+ *
+ * @param <K> 合并键类型
+ * @param <V> 消息类型
+ * @author yangwt
+ */
+public abstract class AbstractCoalescingBatchProcess<K, V> extends AbstractBatchProcess<V> {
+
+    public AbstractCoalescingBatchProcess(int messageCacheCapacity, Duration persistDuration) {
+        this(new BatchProcessConfig(messageCacheCapacity, persistDuration));
+    }
+
+    public AbstractCoalescingBatchProcess(BatchProcessConfig config) {
+        super(requireNotDurable(config), 1, false, null);
+    }
+
+    private static BatchProcessConfig requireNotDurable(BatchProcessConfig config) {
+        if (config.getDurable().isEnabled()) {
+            throw new IllegalArgumentException("coalescing batch process does not support durable mode");
+        }
+        return config;
+    }
+
+    @Override
+    final BatchBuffer<V> createBuffer(int capacity) {
+        return new CoalescingBuffer<>(this::coalesceKey, this::merge, AbstractBatchProcess::mergeAttachments);
+    }
+
+    /**
+     * 消息的合并键，返回 null 时该消息不参与合并
+     */
+    protected abstract K coalesceKey(V message);
+
+    /**
+     * 合并同一个键的两条消息
+     *
+     * @param previous 已缓冲的消息
+     * @param next     新写入的消息
+     * @return 合并结果，不能为 null
+     */
+    protected abstract V merge(V previous, V next);
+}
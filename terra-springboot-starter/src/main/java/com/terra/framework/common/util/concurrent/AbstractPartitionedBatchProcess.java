@@ -0,0 +1,56 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.time.Duration;
+
+/**
+ * 按键分区的批处理器.
+ * <p>
+ * 每条消息按 {@link #partitionKey(Object)} 哈希到固定分区，每个分区拥有独立的缓冲区与刷写通道，
+ * 同一分区同一时刻最多一个在途批次，因此同一个键的消息按写入顺序落库；不同分区之间并行刷写，
+ * 并行度受 {@link BatchProcessConfig#getMaxInFlightBatches()} 与 {@link #executor} 线程数限制.
+ *
+ * @param <K> 分区键类型
+ * @param <V> 消息类型
+ * @author yangwt
+ */
+public abstract class AbstractPartitionedBatchProcess<K, V> extends AbstractBatchProcess<V> {
+
+    public AbstractPartitionedBatchProcess(int partitions, int messageCacheCapacity, Duration persistDuration) {
+        this(new BatchProcessConfig(messageCacheCapacity, persistDuration), partitions);
+    }
+
+    /**
+     * @param partitions 分区数，缓冲消息上限在分区间平分
+     */
+    public AbstractPartitionedBatchProcess(BatchProcessConfig config, int partitions) {
+        super(config, partitions, true, null);
+    }
+
+    /**
+     * @param serializer 持久化模式使用的序列化器
+     */
+    public AbstractPartitionedBatchProcess(BatchProcessConfig config, int partitions, MessageSerializer<V> serializer) {
+        super(config, partitions, true, serializer);
+    }
+
+    @Override
+    final int laneIndex(V message) {
+        K key = partitionKey(message);
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        // 与 HashMap 相同的高位扰动，避免低位相同的键集中到同一分区
+        h ^= (h >>> 16);
+        return Math.floorMod(h, laneCount());
+    }
+
+    public int getPartitions() {
+        return laneCount();
+    }
+
+    /**
+     * 消息的分区键，相同键的消息保证按写入顺序批量处理；返回 null 时进入0号分区
+     */
+    protected abstract K partitionKey(V message);
+}
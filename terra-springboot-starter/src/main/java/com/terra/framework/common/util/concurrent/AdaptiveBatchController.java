@@ -0,0 +1,114 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.time.Duration;
+
+/**
+ * 批次大小与刷写间隔的 AIMD 自适应控制器.
+ * <p>
+ * 每个批次完成后根据 batchInsert 耗时调整：
+ * <ul>
+ *     <li>耗时超过目标或写入失败：批次大小与刷写间隔按 {@link BatchProcessConfig.AdaptiveConfig#getDecreaseFactor()} 乘性收缩，优先保证延迟；</li>
+ *     <li>耗时达标且批次被写满：批次大小加性增长，减少下游往返次数；</li>
+ *     <li>耗时达标且批次未写满（由定时刷写触发）：刷写间隔加性增长，空闲时攒更大的批次.</li>
+ * </ul>
+ * 所有调整都限制在配置的上下界内.
+ *
+ * @author yangwt
+ */
+public class AdaptiveBatchController {
+
+    /**
+     * 指数滑动平均的权重
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final BatchProcessConfig.AdaptiveConfig config;
+
+    private final long targetLatencyNanos;
+
+    private final long minLingerNanos;
+
+    private final long maxLingerNanos;
+
+    private volatile int currentBatchSize;
+
+    private volatile long currentLingerNanos;
+
+    private volatile double averageLatencyNanos;
+
+    private volatile double averageThroughput;
+
+    public AdaptiveBatchController(BatchProcessConfig.AdaptiveConfig config, int initialBatchSize, Duration initialLinger) {
+        if (config.getMinBatchSize() <= 0 || config.getMaxBatchSize() < config.getMinBatchSize()) {
+            throw new IllegalArgumentException("invalid adaptive batch size bounds: "
+                + config.getMinBatchSize() + "-" + config.getMaxBatchSize());
+        }
+        if (config.getMinLinger().isNegative() || config.getMaxLinger().compareTo(config.getMinLinger()) < 0) {
+            throw new IllegalArgumentException("invalid adaptive linger bounds: "
+                + config.getMinLinger() + "-" + config.getMaxLinger());
+        }
+        this.config = config;
+        this.targetLatencyNanos = config.getTargetLatency().toNanos();
+        this.minLingerNanos = Math.max(1, config.getMinLinger().toNanos());
+        this.maxLingerNanos = Math.max(minLingerNanos, config.getMaxLinger().toNanos());
+        this.currentBatchSize = clamp(initialBatchSize, config.getMinBatchSize(), config.getMaxBatchSize());
+        this.currentLingerNanos = clamp(initialLinger.toNanos(), minLingerNanos, maxLingerNanos);
+    }
+
+    /**
+     * 记录一个批次的执行结果并调整参数
+     *
+     * @param batchSize      批次消息数
+     * @param latencyNanos   batchInsert 耗时
+     * @param success        是否写入成功
+     */
+    public synchronized void onBatchComplete(int batchSize, long latencyNanos, boolean success) {
+        averageLatencyNanos = ewma(averageLatencyNanos, latencyNanos);
+        if (latencyNanos > 0) {
+            averageThroughput = ewma(averageThroughput, batchSize * 1_000_000_000D / latencyNanos);
+        }
+        double factor = config.getDecreaseFactor();
+        if (!success || latencyNanos > targetLatencyNanos) {
+            currentBatchSize = clamp((int) (currentBatchSize * factor), config.getMinBatchSize(), config.getMaxBatchSize());
+            currentLingerNanos = clamp((long) (currentLingerNanos * factor), minLingerNanos, maxLingerNanos);
+        } else if (batchSize >= currentBatchSize) {
+            currentBatchSize = clamp(currentBatchSize + config.getBatchSizeStep(), config.getMinBatchSize(), config.getMaxBatchSize());
+        } else {
+            currentLingerNanos = clamp(currentLingerNanos + config.getLingerStep().toNanos(), minLingerNanos, maxLingerNanos);
+        }
+    }
+
+    public int getCurrentBatchSize() {
+        return currentBatchSize;
+    }
+
+    public Duration getCurrentLinger() {
+        return Duration.ofNanos(currentLingerNanos);
+    }
+
+    /**
+     * batchInsert 耗时的滑动平均
+     */
+    public Duration getAverageLatency() {
+        return Duration.ofNanos((long) averageLatencyNanos);
+    }
+
+    /**
+     * batchInsert 吞吐量（消息数/秒）的滑动平均
+     */
+    public double getAverageThroughput() {
+        return averageThroughput;
+    }
+
+    private static double ewma(double average, double sample) {
+        return average == 0 ? sample : average + EWMA_ALPHA * (sample - average);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,38 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.util.function.BiConsumer;
+
+/**
+ * {@link AbstractBatchProcess} 接收通道使用的多生产者/单消费者缓冲区.
+ * <p>
+ * 写入方法可被任意线程并发调用；{@link #drain(BiConsumer, int)} 同一时刻只允许一个线程调用.
+ *
+ * @param <E> 元素类型
+ * @author yangwt
+ */
+public interface BatchBuffer<E> {
+
+    /**
+     * 写入一个元素及其附件，缓冲区已满时立即返回 false.
+     */
+    boolean offer(E e, Object attachment);
+
+    /**
+     * 将元素合并到缓冲区中已有的元素，不占用新的容量. 不支持合并或没有可合并的元素时返回 false.
+     */
+    default boolean merge(E e, Object attachment) {
+        return false;
+    }
+
+    /**
+     * 将最多 limit 个元素及其附件交给 consumer. 仅限消费者线程调用.
+     *
+     * @return 实际消费的数量
+     */
+    int drain(BiConsumer<? super E, Object> consumer, int limit);
+
+    /**
+     * 当前元素数量的近似值
+     */
+    int size();
+}
@@ -0,0 +1,46 @@
+package com.terra.framework.common.util.concurrent;
+
+/**
+ * 批处理器的逐事件指标回调，用于将指标转交给 Micrometer 等监控系统；缓冲消息数、在途批次数等瞬时值
+ * 通过 {@link AbstractBatchProcess} 的 getter 读取. 回调在写入与刷写线程中同步执行，实现需无阻塞且线程安全.
+ *
+ * @author yangwt
+ */
+public interface BatchMetricsListener {
+
+    /**
+     * 一次 batchInsert 结束，重试与拆分的每次调用都会回调
+     *
+     * @param processor    批处理器名称
+     * @param size         批次消息数
+     * @param bytes        批次估算字节数，未按字节切批时为0
+     * @param elapsedNanos batchInsert 耗时
+     * @param success      是否成功
+     */
+    default void onBatch(String processor, int size, long bytes, long elapsedNanos, boolean success) {
+    }
+
+    /**
+     * 消息被溢出策略丢弃
+     */
+    default void onDropped(String processor, BatchPriority priority) {
+    }
+
+    /**
+     * 失败批次进入重试
+     */
+    default void onRetried(String processor, int size) {
+    }
+
+    /**
+     * 重试与拆分后仍失败的消息
+     */
+    default void onFailed(String processor, int size) {
+    }
+
+    /**
+     * {@link OverflowPolicy#BLOCK} 下调用线程一次阻塞结束
+     */
+    default void onBlocked(String processor, long blockedNanos) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.terra.framework.common.util.concurrent;
+
+/**
+ * 批处理消息优先级，启用 {@link BatchProcessConfig.PriorityConfig} 后每个优先级拥有独立的接收通道.
+ *
+ * @author yangwt
+ */
+public enum BatchPriority {
+
+    /**
+     * 高优先级：刷写间隔最短，独占保留的在途批次许可，缓冲区承压时最后被丢弃
+     */
+    HIGH,
+
+    /**
+     * 普通优先级：使用批处理器的默认批次大小与刷写间隔
+     */
+    NORMAL,
+
+    /**
+     * 低优先级：可配置更大的批次与更长的刷写间隔，缓冲区承压时最先被丢弃
+     */
+    LOW
+}
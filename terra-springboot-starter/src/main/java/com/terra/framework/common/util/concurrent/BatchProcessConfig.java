@@ -0,0 +1,253 @@
+package com.terra.framework.common.util.concurrent;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * {@link AbstractBatchProcess} 配置.
+ *
+ * @author yangwt
+ */
+@Data
+public class BatchProcessConfig {
+
+    /**
+     * 单次消息写入最大数
+     */
+    private int messageCacheCapacity = 2000;
+
+    /**
+     * 定时写入间隔（linger），毫秒精度，消息最多在缓冲区中停留该时长
+     */
+    private Duration persistDuration = Duration.ofSeconds(10);
+
+    /**
+     * 单批消息的最大估算字节数（由 {@link AbstractBatchProcess#weigh(Object)} 估算），小于等于0时只按消息数切批.
+     * 缓冲字节数达到该值即刷写，与 messageCacheCapacity 先到者为准；单条超过上限的消息单独成批
+     */
+    private long maxBatchBytes = 0;
+
+    /**
+     * 缓冲消息数硬上限，小于等于0时取 messageCacheCapacity 的4倍
+     */
+    private int maxBufferedMessages = 0;
+
+    /**
+     * 同时处于提交或执行中的批次上限，达到上限后消息留在缓冲区，由溢出策略限流
+     */
+    private int maxInFlightBatches = 8;
+
+    /**
+     * 缓冲区写满时的溢出策略，默认丢弃新消息，{@link AbstractBatchProcess#process(Object)} 不阻塞调用线程
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * {@link OverflowPolicy#BLOCK} 的最长阻塞时间
+     */
+    private Duration blockTimeout = Duration.ofSeconds(1);
+
+    /**
+     * {@link OverflowPolicy#SAMPLE} 开始采样的缓冲区占用比例，范围0-1
+     */
+    private double pressureThreshold = 0.75;
+
+    /**
+     * {@link OverflowPolicy#SAMPLE} 承压时的接收比例，范围0-1
+     */
+    private double pressureSampleRate = 0.1;
+
+    /**
+     * 自适应批次大小与刷写间隔
+     */
+    private AdaptiveConfig adaptive = new AdaptiveConfig();
+
+    /**
+     * 预写日志持久化
+     */
+    private DurableConfig durable = new DurableConfig();
+
+    /**
+     * 失败批次的重试、拆分与死信
+     */
+    private RetryConfig retry = new RetryConfig();
+
+    /**
+     * 优先级通道
+     */
+    private PriorityConfig priority = new PriorityConfig();
+
+    public BatchProcessConfig() {
+    }
+
+    public BatchProcessConfig(int messageCacheCapacity, Duration persistDuration) {
+        this.messageCacheCapacity = messageCacheCapacity;
+        this.persistDuration = persistDuration;
+    }
+
+    /**
+     * 实际生效的缓冲消息上限
+     */
+    public int resolveMaxBufferedMessages() {
+        if (maxBufferedMessages > 0) {
+            return maxBufferedMessages;
+        }
+        int batchSize = adaptive.isEnabled() ? Math.max(messageCacheCapacity, adaptive.getMaxBatchSize()) : messageCacheCapacity;
+        return Math.max(16, batchSize * 4);
+    }
+
+    @Data
+    public static class AdaptiveConfig {
+        /**
+         * 是否启用自适应，启用后 messageCacheCapacity 与 persistDuration 仅作为初始值
+         */
+        private boolean enabled = false;
+
+        /**
+         * 批次大小下限
+         */
+        private int minBatchSize = 100;
+
+        /**
+         * 批次大小上限
+         */
+        private int maxBatchSize = 10000;
+
+        /**
+         * 刷写间隔下限
+         */
+        private Duration minLinger = Duration.ofMillis(50);
+
+        /**
+         * 刷写间隔上限
+         */
+        private Duration maxLinger = Duration.ofSeconds(10);
+
+        /**
+         * 单批 batchInsert 的目标耗时，超过后收缩批次与间隔
+         */
+        private Duration targetLatency = Duration.ofMillis(200);
+
+        /**
+         * 超过目标耗时或写入失败时的乘性收缩系数，范围0-1
+         */
+        private double decreaseFactor = 0.5;
+
+        /**
+         * 批次写满且耗时达标时的批次大小加性增量
+         */
+        private int batchSizeStep = 100;
+
+        /**
+         * 批次未写满且耗时达标时的刷写间隔加性增量
+         */
+        private Duration lingerStep = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class DurableConfig {
+        /**
+         * 是否启用持久化，启用后消息先写入预写日志再进入内存缓冲区，写入成功的批次才会被确认
+         */
+        private boolean enabled = false;
+
+        /**
+         * 预写日志目录，每个批处理器需使用独立目录
+         */
+        private String directory;
+
+        /**
+         * 单个日志段大小（字节）
+         */
+        private int segmentSize = 64 * 1024 * 1024;
+
+        /**
+         * 映射内存刷盘间隔
+         */
+        private Duration forceInterval = Duration.ofSeconds(1);
+
+        /**
+         * 内存缓冲区写满后只保留日志位置的溢出消息数上限，在通道间平分；达到上限后按 overflowPolicy 处理
+         */
+        private int maxSpilledMessages = 100_000;
+    }
+
+    @Data
+    public static class RetryConfig {
+        /**
+         * 单个批次的最大尝试次数（含首次），1 表示不重试
+         */
+        private int maxAttempts = 1;
+
+        /**
+         * 首次重试前的退避时间
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+
+        /**
+         * 退避时间上限
+         */
+        private Duration maxBackoff = Duration.ofSeconds(10);
+
+        /**
+         * 退避时间的增长倍数
+         */
+        private double multiplier = 2.0;
+
+        /**
+         * 退避时间的随机抖动比例，范围0-1，实际退避在 (1±jitter) 倍之间
+         */
+        private double jitter = 0.2;
+
+        /**
+         * 重试耗尽后是否对半拆分批次，逐步隔离导致失败的消息，只有隔离出的消息进入死信
+         */
+        private boolean splitOnFailure = false;
+    }
+
+    @Data
+    public static class PriorityConfig {
+
+        /**
+         * 是否启用，启用后按 {@link AbstractBatchProcess#priority(Object)} 将消息分入高、普通、低三个通道，
+         * 各通道独立缓冲与刷写；不能与分区同时使用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 高优先级通道的刷写间隔
+         */
+        private Duration highLinger = Duration.ofMillis(50);
+
+        /**
+         * 高优先级通道的单批消息数，小于等于0时与普通通道相同
+         */
+        private int highBatchSize = 0;
+
+        /**
+         * 低优先级通道的刷写间隔，为 null 时与普通通道相同
+         */
+        private Duration lowLinger;
+
+        /**
+         * 低优先级通道的单批消息数，小于等于0时与普通通道相同
+         */
+        private int lowBatchSize = 0;
+
+        /**
+         * 只允许高优先级批次使用的在途批次许可数，最多为 maxInFlightBatches - 1
+         */
+        private int reservedInFlightBatches = 1;
+
+        /**
+         * 缓冲消息总数低于上限的该比例时才接收普通优先级消息，超出后按溢出策略处理，范围0-1
+         */
+        private double normalAdmissionRatio = 0.8;
+
+        /**
+         * 缓冲消息总数低于上限的该比例时才接收低优先级消息，超出后按溢出策略处理，范围0-1
+         */
+        private double lowAdmissionRatio = 0.5;
+    }
+}
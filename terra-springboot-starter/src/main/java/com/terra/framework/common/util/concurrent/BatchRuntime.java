@@ -0,0 +1,95 @@
+package com.terra.framework.common.util.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批处理器共享的运行时：一个时间轮驱动所有批处理器的刷写、重试与刷盘定时，一个有界线程池（或虚拟线程）执行 batchInsert.
+ * <p>
+ * 批处理器默认使用进程级的 {@link #shared()}；Spring 环境下由自动配置注册为 Bean，
+ * 容器中的批处理器在初始化前自动切换到该 Bean. 线程均为守护线程，按需创建.
+ *
+ * @author yangwt
+ */
+@Slf4j
+public class BatchRuntime implements Closeable {
+
+    private static volatile BatchRuntime shared;
+
+    private final HashedWheelTimer timer;
+
+    private final ExecutorService executor;
+
+    public BatchRuntime() {
+        this(new BatchRuntimeConfig());
+    }
+
+    public BatchRuntime(BatchRuntimeConfig config) {
+        this.timer = new HashedWheelTimer(Thread.ofPlatform().name("terra-batch-timer").daemon(true).factory(),
+            config.getTickDuration().toNanos(), TimeUnit.NANOSECONDS, config.getTicksPerWheel());
+        if (config.isVirtualThreads()) {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("terra-batch-worker-", 1).factory());
+        } else {
+            int threads = config.resolveWorkerThreads();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                Thread.ofPlatform().name("terra-batch-worker-", 1).daemon(true).factory());
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+    }
+
+    /**
+     * 进程级共享运行时，首次调用时创建，不会关闭
+     */
+    public static BatchRuntime shared() {
+        BatchRuntime runtime = shared;
+        if (runtime == null) {
+            synchronized (BatchRuntime.class) {
+                runtime = shared;
+                if (runtime == null) {
+                    runtime = new BatchRuntime();
+                    shared = runtime;
+                }
+            }
+        }
+        return runtime;
+    }
+
+    public HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * 执行 batchInsert 的线程池，队列满或已关闭时抛出 {@link java.util.concurrent.RejectedExecutionException}
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 停止定时器并关闭线程池，已提交的批次继续执行完成. 共享运行时不应关闭.
+     */
+    @Override
+    public void close() {
+        if (this == shared) {
+            log.warn("共享批处理运行时不应关闭");
+            return;
+        }
+        timer.close();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(3L, TimeUnit.SECONDS)) {
+                log.warn("批处理运行时关闭超时，仍有批次在执行");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.terra.framework.common.util.concurrent;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * {@link BatchRuntime} 配置.
+ *
+ * @author yangwt
+ */
+@Data
+public class BatchRuntimeConfig {
+
+    /**
+     * 执行 batchInsert 的工作线程数上限，小于等于0时取 CPU 核数（至少4）
+     */
+    private int workerThreads = 0;
+
+    /**
+     * 工作线程池的任务队列容量，队列满时由提交线程执行批次
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 是否使用虚拟线程执行 batchInsert，启用后 workerThreads 与 queueCapacity 不生效，
+     * 并发度由各批处理器的 maxInFlightBatches 限制
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * 时间轮刻度，即刷写定时的精度
+     */
+    private Duration tickDuration = Duration.ofMillis(1);
+
+    /**
+     * 时间轮槽位数
+     */
+    private int ticksPerWheel = 512;
+
+    /**
+     * 实际生效的工作线程数
+     */
+    public int resolveWorkerThreads() {
+        return workerThreads > 0 ? workerThreads : Math.max(4, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,164 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * 按键合并的缓冲区，同一个键在缓冲区中最多保留一条元素.
+ * <p>
+ * 写入线程在当前代的 {@link ConcurrentHashMap} 中按键合并；消费者取数时将当前代整体换出并封存，
+ * 等待已进入旧代的写入线程退出后再遍历，之后的写入进入新代. 一代较大时可分多次取完，取完前不会换出下一代.
+ * 键为 null 的元素不参与合并.
+ *
+ * @param <K> 合并键类型
+ * @param <E> 元素类型
+ * @author yangwt
+ */
+public class CoalescingBuffer<K, E> implements BatchBuffer<E> {
+
+    private final Function<? super E, ? extends K> keyExtractor;
+
+    private final BinaryOperator<E> merger;
+
+    private final BinaryOperator<Object> attachmentMerger;
+
+    /**
+     * 接收写入的当前代，仅消费者线程替换
+     */
+    private volatile Generation<E> current = new Generation<>();
+
+    /**
+     * 已换出但尚未取完的一代，仅消费者线程访问
+     */
+    private Iterator<Entry<E>> draining;
+
+    private volatile int drainingRemaining;
+
+    /**
+     * @param keyExtractor     合并键
+     * @param merger           合并函数，参数依次为已缓冲的元素与新写入的元素，返回值不能为 null
+     * @param attachmentMerger 附件合并函数，参数依次为已缓冲的附件与新写入的附件
+     */
+    public CoalescingBuffer(Function<? super E, ? extends K> keyExtractor, BinaryOperator<E> merger,
+                            BinaryOperator<Object> attachmentMerger) {
+        this.keyExtractor = keyExtractor;
+        this.merger = merger;
+        this.attachmentMerger = attachmentMerger;
+    }
+
+    /**
+     * 写入或合并一个元素，总是返回 true；容量由调用方通过 {@link #size()} 控制.
+     */
+    @Override
+    public boolean offer(E e, Object attachment) {
+        return write(e, attachment, true);
+    }
+
+    /**
+     * 当前代中已有同一个键时合并并返回 true，否则不写入；调用方可在检查容量之前先尝试合并.
+     */
+    @Override
+    public boolean merge(E e, Object attachment) {
+        return write(e, attachment, false);
+    }
+
+    private boolean write(E e, Object attachment, boolean insert) {
+        if (e == null) {
+            throw new NullPointerException("element must not be null");
+        }
+        K key = keyExtractor.apply(e);
+        if (key == null && !insert) {
+            return false;
+        }
+        Object mapKey = key != null ? key : new Object();
+        while (true) {
+            Generation<E> generation = current;
+            generation.writers.incrementAndGet();
+            try {
+                // 先登记再检查封存标记，与消费者的先封存再等待写入线程构成对称，二者不会互相错过
+                if (generation.sealed) {
+                    continue;
+                }
+                Entry<E> merged = generation.entries.compute(mapKey, (k, entry) -> {
+                    if (entry == null) {
+                        return insert ? new Entry<>(e, attachment) : null;
+                    }
+                    entry.value = merger.apply(entry.value, e);
+                    entry.attachment = attachmentMerger.apply(entry.attachment, attachment);
+                    return entry;
+                });
+                return merged != null;
+            } finally {
+                generation.writers.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public int drain(BiConsumer<? super E, Object> consumer, int limit) {
+        if (draining == null) {
+            Generation<E> generation = current;
+            if (generation.entries.isEmpty()) {
+                return 0;
+            }
+            current = new Generation<>();
+            generation.sealed = true;
+            while (generation.writers.get() != 0) {
+                Thread.onSpinWait();
+            }
+            drainingRemaining = generation.entries.size();
+            draining = generation.entries.values().iterator();
+        }
+        int drained = 0;
+        while (drained < limit && draining.hasNext()) {
+            Entry<E> entry = draining.next();
+            drainingRemaining--;
+            consumer.accept(entry.value, entry.attachment);
+            drained++;
+        }
+        if (!draining.hasNext()) {
+            draining = null;
+            drainingRemaining = 0;
+        }
+        return drained;
+    }
+
+    /**
+     * 缓冲的键数量
+     */
+    @Override
+    public int size() {
+        return current.entries.size() + drainingRemaining;
+    }
+
+    private static final class Generation<E> {
+
+        private final ConcurrentHashMap<Object, Entry<E>> entries = new ConcurrentHashMap<>();
+
+        /**
+         * 正在写入本代的线程数
+         */
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private volatile boolean sealed;
+    }
+
+    /**
+     * 合并后的元素，仅在所属键的 compute 中修改
+     */
+    private static final class Entry<E> {
+
+        private E value;
+
+        private Object attachment;
+
+        private Entry(E value, Object attachment) {
+            this.value = value;
+            this.attachment = attachment;
+        }
+    }
+}
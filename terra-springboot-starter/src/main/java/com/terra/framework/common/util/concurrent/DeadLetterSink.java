@@ -0,0 +1,21 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.util.List;
+
+/**
+ * 死信接收器，接收重试与拆分后仍写入失败的消息.
+ *
+ * @param <V> 消息类型
+ * @author yangwt
+ */
+@FunctionalInterface
+public interface DeadLetterSink<V> {
+
+    /**
+     * 接收写入失败的消息. 抛出异常时持久化模式下的消息不会被确认，下次启动时回放.
+     *
+     * @param messages 失败的消息
+     * @param cause    最后一次失败的原因
+     */
+    void accept(List<V> messages, Throwable cause);
+}
@@ -0,0 +1,33 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.time.Duration;
+
+/**
+ * 一次排空的结果.
+ *
+ * @param name            组件名称
+ * @param flushed         排空期间成功写入下游的消息数
+ * @param failed          排空期间写入失败的消息数
+ * @param dropped         排空期间被丢弃的消息数，包括停止接收后写入的消息
+ * @param remaining       超时后仍未写入的消息数
+ * @param inFlightBatches 超时后仍在执行的批次数
+ * @param elapsed         排空耗时
+ * @author yangwt
+ */
+public record DrainReport(String name, long flushed, long failed, long dropped, long remaining,
+                          int inFlightBatches, Duration elapsed) {
+
+    /**
+     * 是否已全部排空
+     */
+    public boolean isComplete() {
+        return remaining == 0 && inFlightBatches == 0;
+    }
+
+    /**
+     * 追加丢弃的消息数
+     */
+    public DrainReport withDropped(long additional) {
+        return new DrainReport(name, flushed, failed, dropped + additional, remaining, inFlightBatches, elapsed);
+    }
+}
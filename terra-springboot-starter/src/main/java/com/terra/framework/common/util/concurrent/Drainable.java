@@ -0,0 +1,30 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.time.Duration;
+
+/**
+ * 可排空的组件：停止接收新消息，并在期限内把缓冲的消息全部交给下游.
+ *
+ * @author yangwt
+ */
+public interface Drainable {
+
+    /**
+     * 组件名称，用于排空报告
+     */
+    String getName();
+
+    /**
+     * 排空阶段，阶段大的先排空；向其他组件写入的上游组件应使用更大的阶段，同一阶段的组件并行排空
+     */
+    default int getDrainPhase() {
+        return 0;
+    }
+
+    /**
+     * 停止接收并排空，超时后返回；可重复调用，之后的调用只排空剩余的消息
+     *
+     * @param timeout 最长等待时间
+     */
+    DrainReport drain(Duration timeout);
+}
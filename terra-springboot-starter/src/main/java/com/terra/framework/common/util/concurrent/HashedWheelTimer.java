@@ -0,0 +1,371 @@
+package com.terra.framework.common.util.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮定时器.
+ * <p>
+ * 单个工作线程按固定刻度推进时间轮，到期任务直接在工作线程中执行，因此任务必须短小，耗时操作应转交线程池.
+ * 新任务先进入无锁队列，由工作线程在每个刻度放入对应的槽位. 槽位为侵入式双向链表，取消的任务进入取消队列，
+ * 工作线程在下一个刻度将其从槽位中摘除，不会滞留到轮到其槽位.
+ * 定时精度为一个刻度，没有待执行任务时工作线程挂起，不空转.
+ *
+ * @author yangwt
+ */
+@Slf4j
+public class HashedWheelTimer implements Closeable {
+
+    private static final int STATE_INIT = 0;
+
+    private static final int STATE_STARTED = 1;
+
+    private static final int STATE_STOPPED = 2;
+
+    /**
+     * 每个刻度最多转入的新任务数，避免新任务过多时饿死到期任务
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已取消、待从槽位中摘除的任务
+     */
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    private final Thread worker;
+
+    private volatile long startTime;
+
+    /**
+     * startTime 赋值后打开，其他线程可能在启动线程完成 CAS 后、赋值前调用 {@link #newTimeout}
+     */
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+
+    /**
+     * 工作线程是否因没有任务而挂起
+     */
+    private volatile boolean idle;
+
+    /**
+     * 以下字段仅工作线程访问
+     */
+    private long tick;
+
+    private int scheduled;
+
+    /**
+     * @param threadFactory 工作线程工厂
+     * @param tickDuration  刻度时长
+     * @param ticksPerWheel 槽位数，向上取整为 2 的幂
+     */
+    public HashedWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tickDuration and ticksPerWheel must be positive");
+        }
+        this.tickNanos = Math.max(unit.toNanos(tickDuration), TimeUnit.MICROSECONDS.toNanos(100));
+        int size = ticksPerWheel <= 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.worker = threadFactory.newThread(this::runWorker);
+    }
+
+    /**
+     * 在 delay 后执行 task，首次调用时启动工作线程.
+     *
+     * @throws RejectedExecutionException 定时器已停止
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        start();
+        long deadline = System.nanoTime() + Math.max(0L, unit.toNanos(delay)) - startTime;
+        Timeout timeout = new Timeout(this, task, deadline);
+        pending.add(timeout);
+        if (state.get() == STATE_STOPPED) {
+            throw new RejectedExecutionException("timer is stopped");
+        }
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+        return timeout;
+    }
+
+    /**
+     * 停止定时器，未到期的任务不再执行
+     */
+    @Override
+    public void close() {
+        if (state.getAndSet(STATE_STOPPED) != STATE_STARTED) {
+            return;
+        }
+        LockSupport.unpark(worker);
+        if (Thread.currentThread() == worker) {
+            return;
+        }
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isStopped() {
+        return state.get() == STATE_STOPPED;
+    }
+
+    /**
+     * 当前线程是否为工作线程，即是否在定时任务中调用
+     */
+    public boolean isWorkerThread() {
+        return Thread.currentThread() == worker;
+    }
+
+    private void start() {
+        if (state.get() == STATE_INIT && state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            startTime = System.nanoTime();
+            startTimeInitialized.countDown();
+            worker.start();
+        }
+        if (state.get() == STATE_STOPPED) {
+            throw new RejectedExecutionException("timer is stopped");
+        }
+        // 等待启动线程为 startTime 赋值，否则到期时刻会以0为基准计算
+        boolean interrupted = false;
+        while (startTimeInitialized.getCount() != 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker() {
+        while (state.get() == STATE_STARTED) {
+            if (!awaitNextTick()) {
+                continue;
+            }
+            removeCancelled();
+            transferPending();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+        pending.clear();
+        cancelled.clear();
+    }
+
+    /**
+     * 等待到下一个刻度；没有任何任务时挂起直到有新任务，醒来后刻度对齐到当前时间
+     *
+     * @return 是否到达刻度
+     */
+    private boolean awaitNextTick() {
+        if (scheduled == 0 && pending.isEmpty()) {
+            idle = true;
+            // 设置挂起标记后再检查一次，避免与 newTimeout 错过唤醒
+            if (pending.isEmpty() && state.get() == STATE_STARTED) {
+                LockSupport.park(this);
+            }
+            idle = false;
+            tick = (System.nanoTime() - startTime) / tickNanos;
+            return false;
+        }
+        long deadline = startTime + tickNanos * (tick + 1);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (state.get() != STATE_STARTED) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        return true;
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK && (timeout = pending.poll()) != null; i++) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = Math.max(0, (calculated - tick) / wheel.length);
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+            scheduled++;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            // 尚未转入槽位的任务在转入时跳过
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                scheduled--;
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        if (bucket.head == null) {
+            return;
+        }
+        List<Timeout> due = null;
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                scheduled--;
+                if (due == null) {
+                    due = new ArrayList<>();
+                }
+                due.add(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+        if (due == null) {
+            return;
+        }
+        // 槽位整理完成后再执行，任务中新建的定时不会影响本次遍历
+        for (Timeout expired : due) {
+            expired.expire();
+        }
+    }
+
+    /**
+     * 时间轮槽位，仅工作线程访问
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = timeout;
+                tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public static final class Timeout {
+
+        private static final int ST_INIT = 0;
+
+        private static final int ST_CANCELLED = 1;
+
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+
+        private final Runnable task;
+
+        /**
+         * 相对定时器启动时间的到期时刻
+         */
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        /**
+         * 以下字段仅工作线程访问
+         */
+        private long remainingRounds;
+
+        private Bucket bucket;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务，已开始执行的任务不受影响. 已转入槽位的任务在下一个刻度被摘除
+         */
+        public void cancel() {
+            if (STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                timer.cancelled.add(this);
+            }
+        }
+
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.warn("定时任务执行异常", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的非负 long 直方图，按2的幂分桶，记录一次为两次 {@link LongAdder} 累加.
+ * 分位数为所在桶的上界，误差不超过一倍，用于观察批次耗时与批次大小的分布.
+ *
+ * @author yangwt
+ */
+public class Log2Histogram {
+
+    /**
+     * 下标 i 的桶记录 [2^(i-1), 2^i) 区间的值，0号桶只记录0
+     */
+    private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public Log2Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一个值，负数按0记录
+     */
+    public void record(long value) {
+        long v = Math.max(0L, value);
+        buckets[Math.min(Long.SIZE - 1, Long.SIZE - Long.numberOfLeadingZeros(v))].increment();
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long c = getCount();
+        return c == 0 ? 0 : (double) getSum() / c;
+    }
+
+    /**
+     * 估算分位数
+     *
+     * @param quantile 范围0-1
+     * @return 分位数所在桶的上界，不超过最大值；没有数据时为0
+     */
+    public long percentile(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                long upper = i == 0 ? 0 : i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upper, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return "Log2Histogram{count=" + getCount() + ", mean=" + getMean() + ", p50=" + percentile(0.5)
+            + ", p99=" + percentile(0.99) + ", max=" + getMax() + "}";
+    }
+}
@@ -0,0 +1,406 @@
+package com.terra.framework.common.util.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 分段内存映射预写日志.
+ * <p>
+ * 记录格式为 4 字节（长度 + 1）+ 4 字节 CRC32C + 内容，按 8 字节对齐，长度字段为0表示位置未写入，空内容也能正常记录.
+ * 写入线程通过 CAS 在当前段内抢占位置后直接写映射内存，最后以 release 语义写入长度发布记录，不在每条记录上同步刷盘；
+ * {@link #force()} 由调用方定期执行. 回放时跳过已抢占但未发布或校验失败的位置，继续读取其后的记录.
+ * 每个段记录已写入与已确认的条数，段写满封存且全部确认后删除文件. 打开时目录中已存在的段视为未确认数据，
+ * 通过 {@link #replay(Consumer)} 回放后删除，回放语义为至少一次. 删除的段立即解除映射，不等待 GC.
+ *
+ * @author yangwt
+ */
+@Slf4j
+public class MappedWriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    /**
+     * 记录头：长度 + CRC32C
+     */
+    private static final int HEADER_SIZE = 8;
+
+    private static final int ALIGNMENT = 8;
+
+    private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * sun.misc.Unsafe#invokeCleaner，用于立即解除映射，不可用时为 null，映射留给 GC 释放
+     */
+    private static final MethodHandle INVOKE_CLEANER = lookupCleaner();
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final AtomicLong segmentSequence;
+
+    /**
+     * 打开时已存在、等待回放的段
+     */
+    private final Queue<Path> recoveredSegments;
+
+    /**
+     * 尚未删除的段，用于刷盘与关闭
+     */
+    private final Set<Segment> liveSegments = ConcurrentHashMap.newKeySet();
+
+    private volatile Segment active;
+
+    private volatile boolean closed;
+
+    /**
+     * @param directory   日志目录，不存在时创建
+     * @param segmentSize 单个段文件大小（字节）
+     */
+    public MappedWriteAheadLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("segmentSize must be at least 4096: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % ALIGNMENT;
+        Files.createDirectories(directory);
+        List<Path> existing = listSegments();
+        long lastId = existing.isEmpty() ? 0 : segmentId(existing.get(existing.size() - 1));
+        this.segmentSequence = new AtomicLong(lastId);
+        this.recoveredSegments = new ConcurrentLinkedQueue<>(existing);
+        this.active = newSegment();
+        if (!existing.isEmpty()) {
+            log.info("发现未确认的预写日志段，目录:{}，段数:{}", directory, existing.size());
+        }
+    }
+
+    /**
+     * 追加一条记录，返回记录位置. 记录写入映射内存即返回，不等待刷盘.
+     */
+    public Position append(byte[] payload) {
+        if (closed) {
+            throw new IllegalStateException("write-ahead log is closed: " + directory);
+        }
+        int recordSize = align(HEADER_SIZE + payload.length);
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("record of " + payload.length + " bytes exceeds segment size " + segmentSize);
+        }
+        while (true) {
+            Segment segment = active;
+            // 先计数再抢占位置，保证段在写入完成前不会因计数相等被删除
+            segment.appended.incrementAndGet();
+            int offset = segment.reserve(recordSize);
+            if (offset >= 0) {
+                segment.write(offset, payload);
+                return new Position(segment, offset);
+            }
+            segment.appended.decrementAndGet();
+            segment.releaseIfDone();
+            roll(segment);
+        }
+    }
+
+    /**
+     * 读取打开时已存在的段并逐条交给 consumer，段读取完成后删除. consumer 抛出异常时保留未读完的段.
+     *
+     * @return 回放的记录数
+     */
+    public int replay(Consumer<byte[]> consumer) throws IOException {
+        int replayed = 0;
+        Path path;
+        while ((path = recoveredSegments.peek()) != null) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            try {
+                replayed += replaySegment(path, buffer, consumer);
+            } finally {
+                unmap(buffer);
+            }
+            recoveredSegments.poll();
+            Files.deleteIfExists(path);
+        }
+        return replayed;
+    }
+
+    /**
+     * 按对齐步长扫描整个段：长度为0的位置可能是崩溃时已抢占但未发布的记录，其后仍可能有已写完的记录，
+     * 因此不以其为段尾；校验失败的位置同样跳过
+     */
+    private static int replaySegment(Path path, MappedByteBuffer buffer, Consumer<byte[]> consumer) {
+        int replayed = 0;
+        int corrupted = 0;
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.limit()) {
+            int length = buffer.getInt(offset) - 1;
+            // 未发布位置中的内容可能被当作长度读出，按剩余空间比较，避免接近 Integer.MAX_VALUE 时相加溢出
+            if (length < 0 || length > buffer.limit() - offset - HEADER_SIZE) {
+                offset += ALIGNMENT;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_SIZE, payload);
+            if (buffer.getInt(offset + 4) != checksum(payload)) {
+                corrupted++;
+                offset += ALIGNMENT;
+                continue;
+            }
+            consumer.accept(payload);
+            replayed++;
+            offset += align(HEADER_SIZE + length);
+        }
+        if (corrupted > 0) {
+            log.warn("预写日志段中有校验失败的位置已跳过，文件:{}，位置数:{}", path, corrupted);
+        }
+        return replayed;
+    }
+
+    /**
+     * 是否存在等待回放的段
+     */
+    public boolean hasRecoveredSegments() {
+        return !recoveredSegments.isEmpty();
+    }
+
+    /**
+     * 将所有未删除段的映射内存刷到磁盘
+     */
+    public void force() {
+        for (Segment segment : liveSegments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * 当前未删除的段数
+     */
+    public int getSegmentCount() {
+        return liveSegments.size();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        force();
+        Segment current = active;
+        current.sealed = true;
+        current.releaseIfDone();
+    }
+
+    private synchronized void roll(Segment full) {
+        if (active != full) {
+            return;
+        }
+        try {
+            active = newSegment();
+        } catch (IOException e) {
+            throw new IllegalStateException("创建预写日志段失败: " + directory, e);
+        }
+        full.sealed = true;
+        full.force();
+        full.releaseIfDone();
+    }
+
+    private Segment newSegment() throws IOException {
+        long id = segmentSequence.incrementAndGet();
+        Path path = directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        Segment segment = new Segment(path, buffer);
+        liveSegments.add(segment);
+        return segment;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted(Comparator.comparingLong(MappedWriteAheadLog::segmentId))
+                .toList();
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static MethodHandle lookupCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("无法立即解除内存映射，映射由 GC 释放", e);
+            return null;
+        }
+    }
+
+    /**
+     * 解除映射，之后不能再访问该缓冲区
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            log.debug("解除内存映射失败，映射由 GC 释放", e);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 记录位置
+     */
+    public record Position(Segment segment, int offset) {
+
+        /**
+         * 读取记录内容
+         */
+        public byte[] read() {
+            return segment.read(offset);
+        }
+    }
+
+    /**
+     * 日志段
+     */
+    public final class Segment {
+
+        private final Path path;
+
+        private final MappedByteBuffer buffer;
+
+        private final AtomicInteger writePosition = new AtomicInteger();
+
+        /**
+         * 已写入（含正在写入）的记录数
+         */
+        private final AtomicLong appended = new AtomicLong();
+
+        private final AtomicLong acknowledged = new AtomicLong();
+
+        private final AtomicBoolean deleted = new AtomicBoolean();
+
+        private volatile boolean sealed;
+
+        private volatile boolean forcedAfterSeal;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        /**
+         * 确认段内 count 条记录已处理完成，段封存且全部确认后删除文件
+         */
+        public void acknowledge(int count) {
+            acknowledged.addAndGet(count);
+            releaseIfDone();
+        }
+
+        private int reserve(int size) {
+            while (true) {
+                int position = writePosition.get();
+                if (position + size > buffer.capacity()) {
+                    return -1;
+                }
+                if (writePosition.compareAndSet(position, position + size)) {
+                    return position;
+                }
+            }
+        }
+
+        private void write(int offset, byte[] payload) {
+            buffer.put(offset + HEADER_SIZE, payload);
+            buffer.putInt(offset + 4, checksum(payload));
+            // 长度最后写入，读取方看到非零长度时内容一定已写完；加1使空内容的记录与未写入的位置区分
+            INT_VIEW.setRelease(buffer, offset, payload.length + 1);
+        }
+
+        private byte[] read(int offset) {
+            int length = (int) INT_VIEW.getAcquire(buffer, offset) - 1;
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_SIZE, payload);
+            return payload;
+        }
+
+        /**
+         * 与解除映射互斥，避免刷盘线程访问已解除映射的内存
+         */
+        private synchronized void force() {
+            if (deleted.get() || forcedAfterSeal) {
+                return;
+            }
+            boolean wasSealed = sealed;
+            buffer.force();
+            forcedAfterSeal = wasSealed;
+        }
+
+        private void releaseIfDone() {
+            if (!sealed || acknowledged.get() < appended.get() || !deleted.compareAndSet(false, true)) {
+                return;
+            }
+            liveSegments.remove(this);
+            // 全部记录已确认，不会再有读写，只需与刷盘互斥
+            synchronized (this) {
+                unmap(buffer);
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("删除预写日志段失败，文件:{}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.terra.framework.common.util.concurrent;
+
+/**
+ * 批处理消息的序列化器，用于持久化模式下写入预写日志与启动时回放.
+ *
+ * @param <V> 消息类型
+ * @author yangwt
+ */
+public interface MessageSerializer<V> {
+
+    /**
+     * 序列化消息
+     *
+     * @param message 消息
+     * @return 字节内容，不能为 null
+     */
+    byte[] serialize(V message);
+
+    /**
+     * 反序列化消息
+     *
+     * @param bytes {@link #serialize(Object)} 的结果
+     * @return 消息
+     */
+    V deserialize(byte[] bytes);
+}
@@ -0,0 +1,191 @@
+package com.terra.framework.common.util.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁多生产者/单消费者环形缓冲区.
+ * <p>
+ * 生产者通过一次 CAS 抢占写入序号后直接写槽位（release 语义发布），消费者按序读取并清空槽位.
+ * 同一时刻只允许一个线程调用 {@link #poll()} / {@link #drainTo(Collection, int)} 等消费方法，
+ * 调用方需自行保证（例如 {@link AbstractBatchProcess} 使用刷写标记保证单消费者）.
+ * <p>
+ * 可选为每个槽位携带一个附件（如消息所在的日志段），附件随元素一起发布与消费.
+ *
+ * @param <E> 元素类型
+ * @author yangwt
+ */
+public class MpscRingBuffer<E> implements BatchBuffer<E> {
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> slots;
+
+    /**
+     * 槽位附件，未启用时为 null
+     */
+    private final AtomicReferenceArray<Object> attachments;
+
+    /**
+     * 生产者序号，下一次写入的位置
+     */
+    private final AtomicLong producerIndex = new AtomicLong();
+
+    /**
+     * 消费者序号，下一次读取的位置；仅消费者线程写入
+     */
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    /**
+     * @param requestedCapacity 期望容量，实际容量向上取整为 2 的幂
+     */
+    public MpscRingBuffer(int requestedCapacity) {
+        this(requestedCapacity, false);
+    }
+
+    /**
+     * @param requestedCapacity 期望容量，实际容量向上取整为 2 的幂
+     * @param withAttachments   是否为每个槽位携带附件
+     */
+    public MpscRingBuffer(int requestedCapacity, boolean withAttachments) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + requestedCapacity);
+        }
+        this.capacity = roundToPowerOfTwo(requestedCapacity);
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.attachments = withAttachments ? new AtomicReferenceArray<>(capacity) : null;
+    }
+
+    /**
+     * 写入一个元素，缓冲区已满时立即返回 false.
+     */
+    public boolean offer(E e) {
+        return offer(e, null);
+    }
+
+    /**
+     * 写入一个元素及其附件，缓冲区已满时立即返回 false. 未启用附件时忽略 attachment.
+     */
+    @Override
+    public boolean offer(E e, Object attachment) {
+        if (e == null) {
+            throw new NullPointerException("element must not be null");
+        }
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        int offset = offset(index);
+        if (attachments != null) {
+            // 附件先写入，随元素的 release 写一并发布
+            attachments.setPlain(offset, attachment);
+        }
+        slots.setRelease(offset, e);
+        return true;
+    }
+
+    /**
+     * 读取一个元素；缓冲区为空或对应槽位尚未发布时返回 null. 仅限消费者线程调用.
+     */
+    public E poll() {
+        long index = consumerIndex.get();
+        int offset = offset(index);
+        E e = slots.getAcquire(offset);
+        if (e == null) {
+            return null;
+        }
+        slots.setPlain(offset, null);
+        if (attachments != null) {
+            attachments.setPlain(offset, null);
+        }
+        consumerIndex.lazySet(index + 1);
+        return e;
+    }
+
+    /**
+     * 将最多 limit 个已发布元素交给 consumer. 仅限消费者线程调用.
+     *
+     * @return 实际消费的数量
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        return drain((e, attachment) -> consumer.accept(e), limit);
+    }
+
+    /**
+     * 将最多 limit 个已发布元素及其附件交给 consumer，未启用附件时附件为 null. 仅限消费者线程调用.
+     *
+     * @return 实际消费的数量
+     */
+    @Override
+    public int drain(BiConsumer<? super E, Object> consumer, int limit) {
+        long index = consumerIndex.get();
+        int drained = 0;
+        while (drained < limit) {
+            int offset = offset(index);
+            E e = slots.getAcquire(offset);
+            if (e == null) {
+                break;
+            }
+            Object attachment = null;
+            if (attachments != null) {
+                attachment = attachments.getPlain(offset);
+                attachments.setPlain(offset, null);
+            }
+            slots.setPlain(offset, null);
+            index++;
+            // 先释放槽位再推进序号，生产者看到新序号时槽位一定已清空
+            consumerIndex.lazySet(index);
+            consumer.accept(e, attachment);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * 将最多 limit 个已发布元素追加到 target. 仅限消费者线程调用.
+     *
+     * @return 实际消费的数量
+     */
+    public int drainTo(Collection<? super E> target, int limit) {
+        return drain(target::add, limit);
+    }
+
+    /**
+     * 当前元素数量的近似值（并发写入时可能包含已抢占但尚未发布的槽位）.
+     */
+    @Override
+    public int size() {
+        long consumer = consumerIndex.get();
+        long producer = producerIndex.get();
+        long size = producer - consumer;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private int offset(long index) {
+        return (int) index & mask;
+    }
+
+    private static int roundToPowerOfTwo(int value) {
+        if (value > (1 << 30)) {
+            throw new IllegalArgumentException("capacity too large: " + value);
+        }
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
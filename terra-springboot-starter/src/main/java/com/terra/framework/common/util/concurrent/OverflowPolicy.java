@@ -0,0 +1,35 @@
+package com.terra.framework.common.util.concurrent;
+
+/**
+ * 批处理缓冲区达到上限时的溢出策略.
+ *
+ * @author yangwt
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 阻塞调用线程直到有空位，超过 {@link BatchProcessConfig#getBlockTimeout()} 仍无空位则丢弃当前消息
+     */
+    BLOCK,
+
+    /**
+     * 直接丢弃当前消息
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢弃缓冲区中最早的消息，为当前消息腾出空位
+     */
+    DROP_OLDEST,
+
+    /**
+     * 由调用线程同步取出一批消息执行 batchInsert，以此限制生产速度
+     */
+    CALLER_RUNS,
+
+    /**
+     * 缓冲区占用超过 {@link BatchProcessConfig#getPressureThreshold()} 后按
+     * {@link BatchProcessConfig#getPressureSampleRate()} 采样接收，写满后丢弃
+     */
+    SAMPLE
+}
@@ -0,0 +1,263 @@
+package com.terra.framework.common.util.concurrent.jdbc;
+
+import com.terra.framework.common.util.concurrent.AbstractBatchProcess;
+import com.terra.framework.common.util.concurrent.BatchProcessConfig;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于 JDBC 的批量写入处理器.
+ * <p>
+ * 给定插入语句模板（如 {@code INSERT INTO t (a, b) VALUES (?, ?)}）与 {@link RowBinder}，每个批次按 chunkSize 分块写入：
+ * {@link InsertMode#BATCH} 使用 {@link PreparedStatement#addBatch()}；{@link InsertMode#MULTI_ROW_VALUES}
+ * 将 VALUES 子句改写为多行（{@code VALUES (?, ?), (?, ?), ...}），单条语句的参数总数不超过 maxParameters.
+ * 默认整个批次在同一事务中提交，失败时回滚并抛出异常，由 {@link BatchProcessConfig#getRetry()} 决定重试与拆分.
+ *
+ * @param <V> 消息类型
+ * @author yangwt
+ */
+public class JdbcBatchProcess<V> extends AbstractBatchProcess<V> {
+
+    private final DataSource dataSource;
+
+    private final String sql;
+
+    private final RowBinder<V> rowBinder;
+
+    /**
+     * 写入方式
+     */
+    @Getter
+    @Setter
+    private InsertMode insertMode = InsertMode.BATCH;
+
+    /**
+     * 每次 executeBatch 或每条多行语句包含的行数
+     */
+    @Getter
+    @Setter
+    private int chunkSize = 500;
+
+    /**
+     * 多行改写时单条语句的参数上限，默认兼容 PostgreSQL 等驱动的 32767
+     */
+    @Getter
+    @Setter
+    private int maxParameters = 32767;
+
+    /**
+     * 是否在同一事务中写入整个批次，为 true 时自动提交的连接在写入期间关闭自动提交.
+     * 连接本身为非自动提交（如连接池配置 autoCommit=false）时无论该值如何都在批次结束时提交
+     */
+    @Getter
+    @Setter
+    private boolean transactional = true;
+
+    /**
+     * 多行改写的模板，首次使用时解析
+     */
+    private volatile ValuesTemplate valuesTemplate;
+
+    public JdbcBatchProcess(DataSource dataSource, String sql, RowBinder<V> rowBinder) {
+        this(dataSource, sql, rowBinder, new BatchProcessConfig());
+    }
+
+    public JdbcBatchProcess(DataSource dataSource, String sql, RowBinder<V> rowBinder, BatchProcessConfig config) {
+        super(config);
+        this.dataSource = dataSource;
+        this.sql = sql;
+        this.rowBinder = rowBinder;
+    }
+
+    @Override
+    protected Boolean support(V message) {
+        return message != null;
+    }
+
+    @Override
+    protected Boolean batchInsert(List<V> messages) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean switchAutoCommit = transactional && connection.getAutoCommit();
+            if (switchAutoCommit) {
+                connection.setAutoCommit(false);
+            }
+            // 非自动提交的连接必须显式提交，否则归还连接池时被回滚
+            boolean manageTransaction = !connection.getAutoCommit();
+            Exception failure = null;
+            try {
+                if (insertMode == InsertMode.MULTI_ROW_VALUES) {
+                    insertMultiRow(connection, messages);
+                } else {
+                    insertBatch(connection, messages);
+                }
+                if (manageTransaction) {
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (manageTransaction) {
+                    rollbackQuietly(connection, e);
+                }
+                failure = e;
+                throw e;
+            } finally {
+                if (switchAutoCommit) {
+                    restoreAutoCommit(connection, failure);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("JDBC 批量写入失败，消息长度:" + messages.size(), e);
+        }
+        return true;
+    }
+
+    private void insertBatch(Connection connection, List<V> messages) throws SQLException {
+        int chunk = Math.max(1, chunkSize);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (V message : messages) {
+                rowBinder.bind(statement, 1, message);
+                statement.addBatch();
+                if (++pending == chunk) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void insertMultiRow(Connection connection, List<V> messages) throws SQLException {
+        ValuesTemplate template = valuesTemplate();
+        int rowsPerStatement = Math.max(1, Math.min(chunkSize, maxParameters / Math.max(1, template.parametersPerRow)));
+        int size = messages.size();
+        int fullChunks = size / rowsPerStatement;
+        if (fullChunks > 0) {
+            // 完整分块复用同一条语句
+            try (PreparedStatement statement = connection.prepareStatement(template.render(rowsPerStatement))) {
+                for (int chunk = 0; chunk < fullChunks; chunk++) {
+                    bindRows(statement, template, messages, chunk * rowsPerStatement, rowsPerStatement);
+                    statement.executeUpdate();
+                }
+            }
+        }
+        int remainder = size - fullChunks * rowsPerStatement;
+        if (remainder > 0) {
+            try (PreparedStatement statement = connection.prepareStatement(template.render(remainder))) {
+                bindRows(statement, template, messages, fullChunks * rowsPerStatement, remainder);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private void bindRows(PreparedStatement statement, ValuesTemplate template, List<V> messages, int from, int rows) throws SQLException {
+        for (int i = 0; i < rows; i++) {
+            rowBinder.bind(statement, i * template.parametersPerRow + 1, messages.get(from + i));
+        }
+    }
+
+    private ValuesTemplate valuesTemplate() {
+        ValuesTemplate template = valuesTemplate;
+        if (template == null) {
+            template = ValuesTemplate.parse(sql);
+            valuesTemplate = template;
+        }
+        return template;
+    }
+
+    private static void rollbackQuietly(Connection connection, Exception cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * 恢复自动提交；写入已失败时恢复失败附加到原异常上，不覆盖写入失败的原因
+     */
+    private static void restoreAutoCommit(Connection connection, Exception failure) throws SQLException {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            if (failure == null) {
+                throw e;
+            }
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * 写入方式
+     */
+    public enum InsertMode {
+        /**
+         * {@link PreparedStatement#addBatch()} 后按块 executeBatch，驱动支持时可配合驱动自身的批量改写参数
+         */
+        BATCH,
+        /**
+         * 改写为多行 VALUES，每块一次往返
+         */
+        MULTI_ROW_VALUES
+    }
+
+    /**
+     * 插入语句中 VALUES 子句的拆分结果：前缀 + 单行参数组 + 后缀（如 ON DUPLICATE KEY UPDATE）
+     */
+    private record ValuesTemplate(String prefix, String row, String suffix, int parametersPerRow) {
+
+        private static final Pattern VALUES_CLAUSE = Pattern.compile("\\bVALUES\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+        private static ValuesTemplate parse(String sql) {
+            // 取第一个 VALUES 子句，后缀中的 VALUES(col)（如 ON DUPLICATE KEY UPDATE）不参与改写
+            Matcher matcher = VALUES_CLAUSE.matcher(sql);
+            if (!matcher.find()) {
+                throw new IllegalArgumentException("multi-row rewrite requires an INSERT ... VALUES (...) statement: " + sql);
+            }
+            int open = matcher.end() - 1;
+            int depth = 0;
+            int close = -1;
+            int parameters = 0;
+            boolean quoted = false;
+            for (int i = open; i < sql.length() && close < 0; i++) {
+                char c = sql.charAt(i);
+                if (c == '\'') {
+                    quoted = !quoted;
+                } else if (!quoted && c == '(') {
+                    depth++;
+                } else if (!quoted && c == ')' && --depth == 0) {
+                    close = i;
+                } else if (!quoted && c == '?') {
+                    parameters++;
+                }
+            }
+            if (close < 0) {
+                throw new IllegalArgumentException("unbalanced VALUES clause: " + sql);
+            }
+            String prefix = sql.substring(0, open);
+            String suffix = sql.substring(close + 1);
+            if (prefix.indexOf('?') >= 0 || suffix.indexOf('?') >= 0) {
+                throw new IllegalArgumentException("multi-row rewrite only supports parameters inside the VALUES row: " + sql);
+            }
+            return new ValuesTemplate(prefix, sql.substring(open, close + 1), suffix, parameters);
+        }
+
+        private String render(int rows) {
+            StringBuilder builder = new StringBuilder(prefix.length() + suffix.length() + rows * (row.length() + 2));
+            builder.append(prefix).append(row);
+            for (int i = 1; i < rows; i++) {
+                builder.append(", ").append(row);
+            }
+            return builder.append(suffix).toString();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.terra.framework.common.util.concurrent.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * 将一条消息绑定到 {@link JdbcBatchProcess} 的 SQL 参数.
+ *
+ * @param <V> 消息类型
+ * @author yangwt
+ */
+@FunctionalInterface
+public interface RowBinder<V> {
+
+    /**
+     * 绑定一行参数
+     *
+     * @param statement  预编译语句
+     * @param startIndex 本行第一个参数的下标（从1开始），多行 VALUES 改写时每行依次后移
+     * @param row        消息
+     */
+    void bind(PreparedStatement statement, int startIndex, V row) throws SQLException;
+}
@@ -0,0 +1,20 @@
+package com.terra.framework.common.util.concurrent.pipeline;
+
+import java.util.List;
+
+/**
+ * 管道的输出端，接收合并后的一批消息.
+ *
+ * @param <T> 消息类型
+ * @author yangwt
+ */
+@FunctionalInterface
+public interface BatchSink<T> {
+
+    /**
+     * 写入一批消息. 同一批消息会交给管道的每个输出端，实现不能修改该列表
+     *
+     * @param batch 只读的批次
+     */
+    void write(List<T> batch) throws Exception;
+}
@@ -0,0 +1,481 @@
+package com.terra.framework.common.util.concurrent.pipeline;
+
+import com.terra.framework.common.util.concurrent.AbstractBatchProcess;
+import com.terra.framework.common.util.concurrent.AbstractPartitionedBatchProcess;
+import com.terra.framework.common.util.concurrent.BatchProcessConfig;
+import com.terra.framework.common.util.concurrent.BatchRuntime;
+import com.terra.framework.common.util.concurrent.DeadLetterSink;
+import com.terra.framework.common.util.concurrent.DrainReport;
+import com.terra.framework.common.util.concurrent.Drainable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 批处理管道：map/filter 转换后进入一个共享的批处理缓冲区，每个批次同时交给多个输出端.
+ * <pre>
+ * Pipeline&lt;Event&gt; pipeline = Pipeline.&lt;Event&gt;builder("audit")
+ *     .filter(Event::isAudit)
+ *     .map(AuditRecord::of)
+ *     .keyBy(AuditRecord::getTenantId, 8)
+ *     .batch(config)
+ *     .to("db", jdbcSink, 2, 16)
+ *     .to("file", fileSink)
+ *     .build();
+ * pipeline.start();
+ * </pre>
+ * map/filter 在调用线程内融合执行，不额外排队；batch 阶段为 {@link AbstractBatchProcess}，
+ * 由其缓冲区上限、溢出策略与在途批次数限制；每个输出端拥有独立的有界批次队列与并行度，
+ * 各输出端共享同一个只读批次，互不等待，某个输出端失败只影响自身（计数并交给该输出端的死信）.
+ * 批次放入全部输出端的队列后即视为完成，{@link #submit(Object)} 的结果表示消息已交给输出端.
+ * 输出端并行度大于1时批次之间不保证顺序，需要按键有序写入时并行度应为1.
+ *
+ * @param <I> 输入消息类型
+ * @author yangwt
+ */
+@Slf4j
+public final class Pipeline<I> implements Closeable, Drainable {
+
+    private final String name;
+
+    private final Function<? super I, ?> transform;
+
+    private final Ingress<Object> ingress;
+
+    private final List<SinkStage<Object>> sinks;
+
+    private final LongAdder filteredCount = new LongAdder();
+
+    private volatile int drainPhase;
+
+    @SuppressWarnings("unchecked")
+    private Pipeline(String name, Function<? super I, ?> transform, Function<Object, ?> keyFunction, int partitions,
+                     BatchProcessConfig config, List<? extends SinkStage<?>> sinks) {
+        this.name = name;
+        this.transform = transform;
+        this.sinks = List.copyOf((List<SinkStage<Object>>) sinks);
+        this.ingress = keyFunction != null
+            ? new KeyedIngress<>(config, partitions, keyFunction, this::fanOut)
+            : new UnkeyedIngress<>(config, this::fanOut);
+        this.ingress.batchProcess().setName(name);
+        setBatchRuntime(BatchRuntime.shared());
+    }
+
+    public static <I> Builder<I, I> builder(String name) {
+        return new Builder<>(name, Function.identity());
+    }
+
+    /**
+     * 写入一条消息，被过滤或转换为 null 的消息直接忽略
+     */
+    public void process(I message) {
+        Object value = transform.apply(message);
+        if (value == null) {
+            filteredCount.increment();
+            return;
+        }
+        ingress.process(value);
+    }
+
+    /**
+     * 写入一条消息并返回其结果：所在批次交给全部输出端后正常完成，被溢出策略丢弃时异常完成；
+     * 被过滤的消息直接正常完成
+     */
+    public CompletableFuture<Void> submit(I message) {
+        Object value = transform.apply(message);
+        if (value == null) {
+            filteredCount.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        return ingress.submit(value);
+    }
+
+    /**
+     * 开始定时刷写
+     */
+    public void start() {
+        ingress.start();
+    }
+
+    /**
+     * 停止接收，刷写缓冲区并等待输出端队列排空. 报告中的写入数为交给输出端的消息数，
+     * 失败数包括各输出端写入失败的消息，剩余数包括输出端队列中的消息
+     */
+    @Override
+    public DrainReport drain(Duration timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long sinkFailed = sinkFailedCount();
+        DrainReport report = ingress.batchProcess().drain(timeout);
+        long queued = 0;
+        for (SinkStage<Object> sink : sinks) {
+            sink.awaitIdle(deadline);
+            queued += sink.getQueuedMessages();
+        }
+        return new DrainReport(name, report.flushed(), report.failed() + sinkFailedCount() - sinkFailed, report.dropped(),
+            report.remaining() + queued, report.inFlightBatches(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * 刷写剩余消息并等待输出端队列排空，最多等待3秒
+     */
+    @Override
+    public void close() {
+        DrainReport report = drain(Duration.ofSeconds(3));
+        if (!report.isComplete()) {
+            log.warn("管道[{}]关闭时未排空，剩余消息:{}", name, report.remaining());
+        }
+        try {
+            ingress.stop();
+        } catch (Exception e) {
+            log.error("管道[{}]停止异常", name, e);
+        }
+    }
+
+    private long sinkFailedCount() {
+        long failed = 0;
+        for (SinkStage<Object> sink : sinks) {
+            failed += sink.getFailedCount();
+        }
+        return failed;
+    }
+
+    private void fanOut(List<Object> batch) {
+        // 所有输出端共享同一个只读批次，不复制
+        List<Object> shared = Collections.unmodifiableList(batch);
+        for (SinkStage<Object> sink : sinks) {
+            sink.enqueue(shared);
+        }
+    }
+
+    /**
+     * 指定缓冲区与输出端使用的运行时，需在 {@link #start()} 之前调用
+     */
+    public void setBatchRuntime(BatchRuntime runtime) {
+        ingress.batchProcess().setBatchRuntime(runtime);
+        for (SinkStage<Object> sink : sinks) {
+            sink.setExecutor(runtime.getExecutor());
+        }
+    }
+
+    public BatchRuntime getBatchRuntime() {
+        return ingress.batchProcess().getBatchRuntime();
+    }
+
+    /**
+     * 设置某个输出端的死信接收器，未设置时写入失败的批次只记录日志
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void setDeadLetterSink(String sinkName, DeadLetterSink<T> deadLetterSink) {
+        sink(sinkName).setDeadLetterSink((DeadLetterSink<Object>) deadLetterSink);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getDrainPhase() {
+        return drainPhase;
+    }
+
+    /**
+     * 排空阶段，阶段大的先排空，默认为0
+     */
+    public void setDrainPhase(int drainPhase) {
+        this.drainPhase = drainPhase;
+    }
+
+    /**
+     * 共享的批处理缓冲区，用于查看缓冲、丢弃等统计
+     */
+    public AbstractBatchProcess<?> getBatchProcess() {
+        return ingress.batchProcess();
+    }
+
+    /**
+     * 被过滤的消息数
+     */
+    public long getFilteredCount() {
+        return filteredCount.sum();
+    }
+
+    /**
+     * 输出端已成功写入的消息数
+     */
+    public long getWrittenCount(String sinkName) {
+        return sink(sinkName).getWrittenCount();
+    }
+
+    /**
+     * 输出端写入失败的消息数
+     */
+    public long getFailedCount(String sinkName) {
+        return sink(sinkName).getFailedCount();
+    }
+
+    /**
+     * 输出端队列已满时由上游线程直接写入的批次数
+     */
+    public long getCallerRunsCount(String sinkName) {
+        return sink(sinkName).getCallerRunsCount();
+    }
+
+    /**
+     * 输出端队列中等待写入的批次数
+     */
+    public int getQueuedBatches(String sinkName) {
+        return sink(sinkName).getQueuedBatches();
+    }
+
+    private SinkStage<Object> sink(String sinkName) {
+        for (SinkStage<Object> sink : sinks) {
+            if (sink.getName().equals(sinkName)) {
+                return sink;
+            }
+        }
+        throw new IllegalArgumentException("unknown sink: " + sinkName);
+    }
+
+    /**
+     * 转换阶段的构建器
+     *
+     * @param <I> 输入消息类型
+     * @param <T> 当前阶段输出的消息类型
+     */
+    public static final class Builder<I, T> {
+
+        private final String name;
+
+        /**
+         * 融合后的转换函数，返回 null 表示消息被过滤
+         */
+        private final Function<? super I, ? extends T> transform;
+
+        private Builder(String name, Function<? super I, ? extends T> transform) {
+            this.name = name;
+            this.transform = transform;
+        }
+
+        /**
+         * 转换消息，返回 null 的消息被过滤
+         */
+        public <R> Builder<I, R> map(Function<? super T, ? extends R> mapper) {
+            Function<? super I, ? extends T> previous = transform;
+            return new Builder<>(name, message -> {
+                T value = previous.apply(message);
+                return value != null ? mapper.apply(value) : null;
+            });
+        }
+
+        public Builder<I, T> filter(Predicate<? super T> predicate) {
+            Function<? super I, ? extends T> previous = transform;
+            return new Builder<>(name, message -> {
+                T value = previous.apply(message);
+                return value != null && predicate.test(value) ? value : null;
+            });
+        }
+
+        /**
+         * 按键分区缓冲，相同键的消息按写入顺序进入批次
+         *
+         * @param partitions 分区数
+         */
+        public KeyedBuilder<I, T> keyBy(Function<? super T, ?> keyFunction, int partitions) {
+            return new KeyedBuilder<>(this, keyFunction, partitions);
+        }
+
+        /**
+         * 合并为批次，不支持持久化模式
+         */
+        public SinkBuilder<I, T> batch(BatchProcessConfig config) {
+            return new SinkBuilder<>(this, null, 1, config);
+        }
+    }
+
+    /**
+     * 按键分区后的构建器
+     */
+    public static final class KeyedBuilder<I, T> {
+
+        private final Builder<I, T> upstream;
+
+        private final Function<? super T, ?> keyFunction;
+
+        private final int partitions;
+
+        private KeyedBuilder(Builder<I, T> upstream, Function<? super T, ?> keyFunction, int partitions) {
+            this.upstream = upstream;
+            this.keyFunction = keyFunction;
+            this.partitions = partitions;
+        }
+
+        public SinkBuilder<I, T> batch(BatchProcessConfig config) {
+            return new SinkBuilder<>(upstream, keyFunction, partitions, config);
+        }
+    }
+
+    /**
+     * 输出端的构建器
+     */
+    public static final class SinkBuilder<I, T> {
+
+        private final Builder<I, T> upstream;
+
+        private final Function<? super T, ?> keyFunction;
+
+        private final int partitions;
+
+        private final BatchProcessConfig config;
+
+        private final List<SinkStage<T>> sinks = new ArrayList<>();
+
+        private SinkBuilder(Builder<I, T> upstream, Function<? super T, ?> keyFunction, int partitions, BatchProcessConfig config) {
+            if (config.getDurable().isEnabled()) {
+                throw new IllegalArgumentException("pipeline does not support durable mode");
+            }
+            this.upstream = upstream;
+            this.keyFunction = keyFunction;
+            this.partitions = partitions;
+            this.config = config;
+        }
+
+        /**
+         * 添加输出端，单线程写入，队列容量16个批次
+         */
+        public SinkBuilder<I, T> to(String name, BatchSink<T> sink) {
+            return to(name, sink, 1, 16);
+        }
+
+        /**
+         * @param parallelism   同时写入的最大线程数
+         * @param queueCapacity 等待写入的最大批次数，队列满时由上游线程直接写入
+         */
+        public SinkBuilder<I, T> to(String name, BatchSink<T> sink, int parallelism, int queueCapacity) {
+            Objects.requireNonNull(name, "name");
+            for (SinkStage<T> existing : sinks) {
+                if (existing.getName().equals(name)) {
+                    throw new IllegalArgumentException("duplicate sink: " + name);
+                }
+            }
+            sinks.add(new SinkStage<>(name, sink, parallelism, queueCapacity));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Pipeline<I> build() {
+            if (sinks.isEmpty()) {
+                throw new IllegalStateException("pipeline requires at least one sink");
+            }
+            return new Pipeline<>(upstream.name, upstream.transform, (Function<Object, ?>) keyFunction, partitions, config, sinks);
+        }
+    }
+
+    /**
+     * batch 阶段，屏蔽分区与不分区两种批处理器的差异
+     */
+    private interface Ingress<T> {
+
+        AbstractBatchProcess<T> batchProcess();
+
+        void process(T message);
+
+        CompletableFuture<Void> submit(T message);
+
+        void start();
+
+        void stop() throws Exception;
+    }
+
+    private static final class UnkeyedIngress<T> extends AbstractBatchProcess<T> implements Ingress<T> {
+
+        private final Consumer<List<T>> downstream;
+
+        private UnkeyedIngress(BatchProcessConfig config, Consumer<List<T>> downstream) {
+            super(config);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public AbstractBatchProcess<T> batchProcess() {
+            return this;
+        }
+
+        @Override
+        public void start() {
+            schedule();
+        }
+
+        @Override
+        public void stop() throws Exception {
+            destroy();
+        }
+
+        @Override
+        protected Boolean support(T message) {
+            return Boolean.TRUE;
+        }
+
+        @Override
+        protected Boolean batchInsert(List<T> messages) {
+            downstream.accept(messages);
+            return Boolean.TRUE;
+        }
+    }
+
+    private static final class KeyedIngress<T> extends AbstractPartitionedBatchProcess<Object, T> implements Ingress<T> {
+
+        private final Function<? super T, ?> keyFunction;
+
+        private final Consumer<List<T>> downstream;
+
+        private KeyedIngress(BatchProcessConfig config, int partitions, Function<? super T, ?> keyFunction,
+                             Consumer<List<T>> downstream) {
+            super(config, partitions);
+            this.keyFunction = keyFunction;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public AbstractBatchProcess<T> batchProcess() {
+            return this;
+        }
+
+        @Override
+        public void start() {
+            schedule();
+        }
+
+        @Override
+        public void stop() throws Exception {
+            destroy();
+        }
+
+        @Override
+        protected Object partitionKey(T message) {
+            return keyFunction.apply(message);
+        }
+
+        @Override
+        protected Boolean support(T message) {
+            return Boolean.TRUE;
+        }
+
+        @Override
+        protected Boolean batchInsert(List<T> messages) {
+            downstream.accept(messages);
+            return Boolean.TRUE;
+        }
+    }
+}
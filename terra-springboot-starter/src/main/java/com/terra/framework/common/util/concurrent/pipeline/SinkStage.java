@@ -0,0 +1,217 @@
+package com.terra.framework.common.util.concurrent.pipeline;
+
+import com.terra.framework.common.util.concurrent.DeadLetterSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一个输出端及其有界批次队列，最多 parallelism 个线程同时执行写入，调用线程代为写入时同样占用名额.
+ *
+ * @param <T> 消息类型
+ * @author yangwt
+ */
+@Slf4j
+final class SinkStage<T> {
+
+    private static final long CALLER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final String name;
+
+    private final BatchSink<T> sink;
+
+    private final int parallelism;
+
+    private final BlockingQueue<List<T>> queue;
+
+    /**
+     * 正在排空队列的工作线程数
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * 已占用名额、已提交但尚未开始执行的排空任务数，调用线程可以接管这些名额
+     */
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+
+    private final LongAdder writtenCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder callerRunsCount = new LongAdder();
+
+    private volatile DeadLetterSink<T> deadLetterSink;
+
+    private volatile Executor executor;
+
+    SinkStage(String name, BatchSink<T> sink, int parallelism, int queueCapacity) {
+        if (parallelism <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("parallelism and queueCapacity must be positive");
+        }
+        this.name = name;
+        this.sink = sink;
+        this.parallelism = parallelism;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 将批次放入队列. 队列已满时调用线程取得一个写入名额后代为写入队首的批次，写入线程总数不超过 parallelism，
+     * 并行度为1时仍按队列顺序写入. 尚未开始执行的排空任务的名额可被调用线程接管，避免调用线程与排空任务
+     * 共用线程池时全部线程阻塞在放入上；名额全部被正在写入的线程占用时短暂等待其腾出队列空间
+     */
+    void enqueue(List<T> batch) {
+        while (!queue.offer(batch)) {
+            if (tryReacquire() || claimPendingDrain()) {
+                try {
+                    List<T> head = queue.poll();
+                    if (head != null) {
+                        callerRunsCount.increment();
+                        write(head);
+                    }
+                } finally {
+                    active.decrementAndGet();
+                }
+            } else {
+                LockSupport.parkNanos(CALLER_BACKOFF_NANOS);
+            }
+        }
+        signal();
+    }
+
+    private void signal() {
+        int current;
+        while ((current = active.get()) < parallelism) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                pendingDrains.incrementAndGet();
+                try {
+                    executor.execute(this::runPendingDrain);
+                } catch (RejectedExecutionException e) {
+                    runPendingDrain();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 排空任务开始执行，名额已被调用线程接管时直接返回
+     */
+    private void runPendingDrain() {
+        if (claimPendingDrain()) {
+            drain();
+        }
+    }
+
+    private boolean claimPendingDrain() {
+        int current;
+        while ((current = pendingDrains.get()) > 0) {
+            if (pendingDrains.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        while (true) {
+            List<T> batch;
+            while ((batch = queue.poll()) != null) {
+                write(batch);
+            }
+            active.decrementAndGet();
+            // 退出后再次检查，避免与放入线程的 signal 交错导致批次滞留
+            if (queue.isEmpty() || !tryReacquire()) {
+                return;
+            }
+        }
+    }
+
+    private boolean tryReacquire() {
+        int current;
+        while ((current = active.get()) < parallelism) {
+            if (active.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(List<T> batch) {
+        try {
+            sink.write(batch);
+            writtenCount.add(batch.size());
+        } catch (Exception e) {
+            failedCount.add(batch.size());
+            DeadLetterSink<T> deadLetter = this.deadLetterSink;
+            if (deadLetter == null) {
+                log.error("管道输出端[{}]写入异常，消息长度:{}", name, batch.size(), e);
+                return;
+            }
+            try {
+                deadLetter.accept(batch, e);
+            } catch (Exception ex) {
+                log.error("管道输出端[{}]死信处理异常，消息长度:{}", name, batch.size(), ex);
+            }
+        }
+    }
+
+    /**
+     * 等待队列排空，超时后返回
+     */
+    void awaitIdle(long deadlineNanos) {
+        signal();
+        while ((!queue.isEmpty() || active.get() > 0) && deadlineNanos - System.nanoTime() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    void setDeadLetterSink(DeadLetterSink<T> deadLetterSink) {
+        this.deadLetterSink = deadLetterSink;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    long getCallerRunsCount() {
+        return callerRunsCount.sum();
+    }
+
+    int getQueuedBatches() {
+        return queue.size();
+    }
+
+    long getQueuedMessages() {
+        long messages = 0;
+        for (List<T> batch : queue) {
+            messages += batch.size();
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,59 @@
+package com.terra.framework.common.util.concurrent.window;
+
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * 窗口聚合函数.
+ * <p>
+ * {@link #add(Object, Object)} 会被多个线程并发调用，实现需保证线程安全；
+ * 常用的计数、求和、最值见 {@link Aggregations}，自定义合并逻辑可通过 {@link #of(Supplier, BiConsumer, BinaryOperator)} 包装.
+ *
+ * @param <V> 消息类型
+ * @param <A> 累加器类型
+ * @author yangwt
+ */
+public interface Aggregation<V, A> {
+
+    /**
+     * 创建空累加器
+     */
+    A create();
+
+    /**
+     * 将一条消息累加到累加器，可能被并发调用
+     */
+    void add(A accumulator, V message);
+
+    /**
+     * 合并两个累加器，用于滑动窗口合并多个分片. 可以修改并返回 left，不能修改 right
+     */
+    A merge(A left, A right);
+
+    /**
+     * 由非线程安全的函数构造聚合，add 与 merge 在累加器上加锁执行
+     */
+    static <V, A> Aggregation<V, A> of(Supplier<A> creator, BiConsumer<A, ? super V> adder, BinaryOperator<A> merger) {
+        return new Aggregation<>() {
+            @Override
+            public A create() {
+                return creator.get();
+            }
+
+            @Override
+            public void add(A accumulator, V message) {
+                synchronized (accumulator) {
+                    adder.accept(accumulator, message);
+                }
+            }
+
+            @Override
+            public A merge(A left, A right) {
+                synchronized (right) {
+                    return merger.apply(left, right);
+                }
+            }
+        };
+    }
+}
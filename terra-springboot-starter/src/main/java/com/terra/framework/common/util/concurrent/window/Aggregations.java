@@ -0,0 +1,143 @@
+package com.terra.framework.common.util.concurrent.window;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 基于原始类型累加器的常用聚合，累加过程无锁、不装箱.
+ *
+ * @author yangwt
+ */
+public final class Aggregations {
+
+    private Aggregations() {
+    }
+
+    /**
+     * 计数
+     */
+    public static <V> Aggregation<V, LongAdder> count() {
+        return new Aggregation<>() {
+            @Override
+            public LongAdder create() {
+                return new LongAdder();
+            }
+
+            @Override
+            public void add(LongAdder accumulator, V message) {
+                accumulator.increment();
+            }
+
+            @Override
+            public LongAdder merge(LongAdder left, LongAdder right) {
+                left.add(right.sum());
+                return left;
+            }
+        };
+    }
+
+    /**
+     * long 求和
+     */
+    public static <V> Aggregation<V, LongAdder> sum(ToLongFunction<? super V> value) {
+        return new Aggregation<>() {
+            @Override
+            public LongAdder create() {
+                return new LongAdder();
+            }
+
+            @Override
+            public void add(LongAdder accumulator, V message) {
+                accumulator.add(value.applyAsLong(message));
+            }
+
+            @Override
+            public LongAdder merge(LongAdder left, LongAdder right) {
+                left.add(right.sum());
+                return left;
+            }
+        };
+    }
+
+    /**
+     * double 求和
+     */
+    public static <V> Aggregation<V, DoubleAdder> sumDouble(ToDoubleFunction<? super V> value) {
+        return new Aggregation<>() {
+            @Override
+            public DoubleAdder create() {
+                return new DoubleAdder();
+            }
+
+            @Override
+            public void add(DoubleAdder accumulator, V message) {
+                accumulator.add(value.applyAsDouble(message));
+            }
+
+            @Override
+            public DoubleAdder merge(DoubleAdder left, DoubleAdder right) {
+                left.add(right.sum());
+                return left;
+            }
+        };
+    }
+
+    /**
+     * long 最小值
+     */
+    public static <V> Aggregation<V, LongAccumulator> min(ToLongFunction<? super V> value) {
+        return extremum(value, true);
+    }
+
+    /**
+     * long 最大值
+     */
+    public static <V> Aggregation<V, LongAccumulator> max(ToLongFunction<? super V> value) {
+        return extremum(value, false);
+    }
+
+    /**
+     * 次数、总和、最小值、最大值
+     */
+    public static <V> Aggregation<V, LongStats> stats(ToLongFunction<? super V> value) {
+        return new Aggregation<>() {
+            @Override
+            public LongStats create() {
+                return new LongStats();
+            }
+
+            @Override
+            public void add(LongStats accumulator, V message) {
+                accumulator.add(value.applyAsLong(message));
+            }
+
+            @Override
+            public LongStats merge(LongStats left, LongStats right) {
+                return left.merge(right);
+            }
+        };
+    }
+
+    private static <V> Aggregation<V, LongAccumulator> extremum(ToLongFunction<? super V> value, boolean min) {
+        return new Aggregation<>() {
+            @Override
+            public LongAccumulator create() {
+                return min ? new LongAccumulator(Math::min, Long.MAX_VALUE) : new LongAccumulator(Math::max, Long.MIN_VALUE);
+            }
+
+            @Override
+            public void add(LongAccumulator accumulator, V message) {
+                accumulator.accumulate(value.applyAsLong(message));
+            }
+
+            @Override
+            public LongAccumulator merge(LongAccumulator left, LongAccumulator right) {
+                left.accumulate(right.get());
+                return left;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.terra.framework.common.util.concurrent.window;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的 long 统计累加器：次数、总和、最小值、最大值.
+ *
+ * @author yangwt
+ */
+public class LongStats {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    public void add(long value) {
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 合并另一个统计，返回自身
+     */
+    public LongStats merge(LongStats other) {
+        long otherCount = other.getCount();
+        if (otherCount == 0) {
+            return this;
+        }
+        count.add(otherCount);
+        sum.add(other.getSum());
+        min.accumulate(other.getMin());
+        max.accumulate(other.getMax());
+        return this;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 最小值，没有数据时为 {@link Long#MAX_VALUE}
+     */
+    public long getMin() {
+        return min.get();
+    }
+
+    /**
+     * 最大值，没有数据时为 {@link Long#MIN_VALUE}
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getAverage() {
+        long c = getCount();
+        return c == 0 ? 0 : (double) getSum() / c;
+    }
+
+    @Override
+    public String toString() {
+        return "LongStats{count=" + getCount() + ", sum=" + getSum() + ", min=" + getMin() + ", max=" + getMax() + "}";
+    }
+}
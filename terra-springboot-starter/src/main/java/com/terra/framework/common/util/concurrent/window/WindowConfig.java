@@ -0,0 +1,54 @@
+package com.terra.framework.common.util.concurrent.window;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * {@link WindowedAggregator} 配置.
+ *
+ * @author yangwt
+ */
+@Data
+public class WindowConfig {
+
+    /**
+     * 窗口长度
+     */
+    private Duration size = Duration.ofMinutes(1);
+
+    /**
+     * 滑动步长，为 null 时与窗口长度相同（滚动窗口）
+     */
+    private Duration slide;
+
+    /**
+     * 窗口结束后等待迟到消息的时长，之后输出结果；晚于输出时间到达的消息计为迟到并丢弃
+     */
+    private Duration grace = Duration.ZERO;
+
+    /**
+     * 滚动窗口
+     */
+    public static WindowConfig tumbling(Duration size) {
+        WindowConfig config = new WindowConfig();
+        config.setSize(size);
+        return config;
+    }
+
+    /**
+     * 滑动窗口
+     */
+    public static WindowConfig sliding(Duration size, Duration slide) {
+        WindowConfig config = tumbling(size);
+        config.setSlide(slide);
+        return config;
+    }
+
+    /**
+     * 实际生效的滑动步长
+     */
+    public Duration resolveSlide() {
+        return slide != null ? slide : size;
+    }
+}
@@ -0,0 +1,15 @@
+package com.terra.framework.common.util.concurrent.window;
+
+/**
+ * 一个窗口内某个键的聚合结果.
+ *
+ * @param key         聚合键
+ * @param windowStart 窗口开始时间（毫秒，含）
+ * @param windowEnd   窗口结束时间（毫秒，不含）
+ * @param value       累加器
+ * @param <K>         聚合键类型
+ * @param <A>         累加器类型
+ * @author yangwt
+ */
+public record WindowResult<K, A>(K key, long windowStart, long windowEnd, A value) {
+}
@@ -0,0 +1,359 @@
+package com.terra.framework.common.util.concurrent.window;
+
+import com.terra.framework.common.util.concurrent.BatchRuntime;
+import com.terra.framework.common.util.concurrent.DrainReport;
+import com.terra.framework.common.util.concurrent.Drainable;
+import com.terra.framework.common.util.concurrent.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 窗口聚合：按键与时间窗口累加消息，窗口结束后只把每个键的聚合结果交给下游（通常是
+ * {@link com.terra.framework.common.util.concurrent.AbstractBatchProcess#process(Object)}）.
+ * <p>
+ * 时间轴按窗口长度与滑动步长的最大公约数切成分片，消息只累加到所属分片；滚动窗口的结果即单个分片，
+ * 滑动窗口在输出时合并覆盖的分片，因此每条消息只累加一次. 窗口边界按纪元对齐，
+ * 由 {@link BatchRuntime} 的时间轮在每个步长边界加 grace 后触发输出，输出在运行时的线程池中执行.
+ * 默认按处理时间归属窗口，设置 {@link #setTimestampExtractor(ToLongFunction)} 后按消息时间，已输出分片的消息计为迟到.
+ * 作为下游批处理器的上游，默认排空阶段为1，先于批处理器排空.
+ *
+ * @param <V> 消息类型
+ * @param <K> 聚合键类型
+ * @param <A> 累加器类型
+ * @author yangwt
+ */
+@Slf4j
+public class WindowedAggregator<V, K, A> implements Closeable, Drainable {
+
+    private final long sizeMillis;
+
+    private final long slideMillis;
+
+    private final long graceMillis;
+
+    /**
+     * 分片长度
+     */
+    private final long paneMillis;
+
+    private final Function<? super V, ? extends K> keyExtractor;
+
+    private final Aggregation<? super V, A> aggregation;
+
+    private final Consumer<? super WindowResult<K, A>> sink;
+
+    private final ConcurrentHashMap<Long, Pane> panes = new ConcurrentHashMap<>();
+
+    private final LongAdder lateCount = new LongAdder();
+
+    private final LongAdder emittedCount = new LongAdder();
+
+    private volatile ToLongFunction<? super V> timestampExtractor;
+
+    private volatile BatchRuntime runtime = BatchRuntime.shared();
+
+    /**
+     * 小于该下标的分片已封存，不再接收消息
+     */
+    private volatile long sealedBelow = Long.MIN_VALUE;
+
+    /**
+     * 下一个待输出的窗口结束时间，仅在持有自身锁时访问
+     */
+    private long nextBoundary = Long.MIN_VALUE;
+
+    private volatile HashedWheelTimer.Timeout timeout;
+
+    private volatile boolean closed;
+
+    private volatile String name = "WindowedAggregator";
+
+    private volatile int drainPhase = 1;
+
+    /**
+     * @param keyExtractor 聚合键，不能返回 null
+     * @param aggregation  聚合函数
+     * @param sink         窗口结果的接收方，在输出线程中逐条调用
+     */
+    public WindowedAggregator(WindowConfig config, Function<? super V, ? extends K> keyExtractor,
+                              Aggregation<? super V, A> aggregation, Consumer<? super WindowResult<K, A>> sink) {
+        this.sizeMillis = config.getSize().toMillis();
+        this.slideMillis = config.resolveSlide().toMillis();
+        this.graceMillis = Math.max(0L, config.getGrace().toMillis());
+        if (sizeMillis <= 0 || slideMillis <= 0) {
+            throw new IllegalArgumentException("window size and slide must be at least 1ms");
+        }
+        this.paneMillis = gcd(sizeMillis, slideMillis);
+        this.keyExtractor = keyExtractor;
+        this.aggregation = aggregation;
+        this.sink = sink;
+    }
+
+    /**
+     * 累加一条消息
+     *
+     * @return 消息所属窗口已输出（迟到）或已关闭时返回 false
+     */
+    public boolean add(V message) {
+        if (closed) {
+            lateCount.increment();
+            return false;
+        }
+        ToLongFunction<? super V> extractor = timestampExtractor;
+        long timestamp = extractor != null ? extractor.applyAsLong(message) : System.currentTimeMillis();
+        long index = Math.floorDiv(timestamp, paneMillis);
+        if (index < sealedBelow) {
+            lateCount.increment();
+            return false;
+        }
+        Pane pane = panes.computeIfAbsent(index, Pane::new);
+        pane.writers.incrementAndGet();
+        try {
+            // 先登记再检查，与输出线程的先封存再等待写入线程对称
+            if (pane.sealed || index < sealedBelow) {
+                lateCount.increment();
+                return false;
+            }
+            A accumulator = pane.accumulators.computeIfAbsent(keyExtractor.apply(message), k -> aggregation.create());
+            aggregation.add(accumulator, message);
+            return true;
+        } finally {
+            pane.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 开始按窗口边界定时输出
+     */
+    public synchronized void start() {
+        if (nextBoundary != Long.MIN_VALUE || closed) {
+            return;
+        }
+        nextBoundary = (Math.floorDiv(System.currentTimeMillis(), slideMillis) + 1) * slideMillis;
+        scheduleNext();
+    }
+
+    /**
+     * 停止定时并输出所有尚未输出的窗口（包括未结束的窗口）
+     */
+    @Override
+    public void close() {
+        closed = true;
+        HashedWheelTimer.Timeout current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+        synchronized (this) {
+            alignFirstBoundary();
+            while (!panes.isEmpty()) {
+                // 跳过没有数据的边界，直接到最早分片所在的第一个窗口
+                nextBoundary = Math.max(nextBoundary, earliestBoundary());
+                emit(nextBoundary);
+                nextBoundary += slideMillis;
+            }
+        }
+    }
+
+    /**
+     * 停止定时并输出所有剩余窗口. 报告中的写入数为输出的窗口结果数，丢弃数为迟到或关闭后写入的消息数
+     */
+    @Override
+    public DrainReport drain(Duration timeout) {
+        long start = System.nanoTime();
+        long emitted = emittedCount.sum();
+        long late = lateCount.sum();
+        close();
+        return new DrainReport(name, emittedCount.sum() - emitted, 0, lateCount.sum() - late, 0, 0,
+            Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void scheduleNext() {
+        if (closed) {
+            return;
+        }
+        long delay = Math.max(0L, nextBoundary + graceMillis - System.currentTimeMillis());
+        try {
+            timeout = runtime.getTimer().newTimeout(() -> {
+                try {
+                    runtime.getExecutor().execute(this::tick);
+                } catch (RejectedExecutionException e) {
+                    tick();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("批量处理运行时已关闭，窗口聚合停止定时输出");
+        }
+    }
+
+    private synchronized void tick() {
+        if (closed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            alignFirstBoundary();
+            // 定时延迟时补齐错过的边界
+            while (nextBoundary + graceMillis <= now) {
+                emit(nextBoundary);
+                nextBoundary += slideMillis;
+            }
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * 首次输出前按最早的分片对齐起始边界，避免按消息时间早于启动时间的数据被直接淘汰
+     */
+    private void alignFirstBoundary() {
+        if (sealedBelow != Long.MIN_VALUE || panes.isEmpty()) {
+            return;
+        }
+        long earliest = earliestBoundary();
+        nextBoundary = nextBoundary == Long.MIN_VALUE ? earliest : Math.min(nextBoundary, earliest);
+    }
+
+    /**
+     * 覆盖最早分片的第一个窗口的结束时间
+     */
+    private long earliestBoundary() {
+        long earliest = panes.keySet().stream().mapToLong(Long::longValue).min().orElse(0L);
+        return Math.floorDiv((earliest + 1) * paneMillis + slideMillis - 1, slideMillis) * slideMillis;
+    }
+
+    /**
+     * 输出结束于 boundary 的窗口：先封存已结束的分片，再合并窗口覆盖的分片，最后淘汰后续窗口不再需要的分片
+     */
+    private void emit(long boundary) {
+        long sealIndex = Math.floorDiv(boundary, paneMillis);
+        sealedBelow = sealIndex;
+        for (Pane pane : panes.values()) {
+            if (pane.index < sealIndex && !pane.sealed) {
+                pane.sealed = true;
+                while (pane.writers.get() != 0) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        long windowStart = boundary - sizeMillis;
+        long firstIndex = Math.floorDiv(windowStart, paneMillis);
+        List<Pane> covered = new ArrayList<>();
+        for (Pane pane : panes.values()) {
+            if (pane.index >= firstIndex && pane.index < sealIndex && !pane.accumulators.isEmpty()) {
+                covered.add(pane);
+            }
+        }
+        if (covered.size() == 1 && sizeMillis == paneMillis) {
+            // 滚动窗口：分片即窗口，直接输出
+            covered.get(0).accumulators.forEach((key, value) -> deliver(new WindowResult<>(key, windowStart, boundary, value)));
+        } else if (!covered.isEmpty()) {
+            Map<K, A> merged = new HashMap<>();
+            for (Pane pane : covered) {
+                pane.accumulators.forEach((key, value) ->
+                    merged.compute(key, (k, current) -> aggregation.merge(current != null ? current : aggregation.create(), value)));
+            }
+            merged.forEach((key, value) -> deliver(new WindowResult<>(key, windowStart, boundary, value)));
+        }
+        long evictBelow = Math.floorDiv(boundary + slideMillis - sizeMillis, paneMillis);
+        panes.keySet().removeIf(index -> index < Math.min(evictBelow, sealIndex));
+    }
+
+    private void deliver(WindowResult<K, A> result) {
+        try {
+            sink.accept(result);
+            emittedCount.increment();
+        } catch (Exception e) {
+            log.error("窗口聚合结果输出异常，键:{}", result.key(), e);
+        }
+    }
+
+    /**
+     * 按消息时间归属窗口，返回毫秒时间戳；未设置时按处理时间
+     */
+    public void setTimestampExtractor(ToLongFunction<? super V> timestampExtractor) {
+        this.timestampExtractor = timestampExtractor;
+    }
+
+    /**
+     * 指定驱动定时输出的运行时，需在 {@link #start()} 之前调用
+     */
+    public void setBatchRuntime(BatchRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public int getDrainPhase() {
+        return drainPhase;
+    }
+
+    /**
+     * 排空阶段，阶段大的先排空，默认为1
+     */
+    public void setDrainPhase(int drainPhase) {
+        this.drainPhase = drainPhase;
+    }
+
+    /**
+     * 因所属窗口已输出或已关闭而丢弃的消息数
+     */
+    public long getLateCount() {
+        return lateCount.sum();
+    }
+
+    /**
+     * 已输出的窗口结果数
+     */
+    public long getEmittedCount() {
+        return emittedCount.sum();
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private final class Pane {
+
+        private final long index;
+
+        private final ConcurrentHashMap<K, A> accumulators = new ConcurrentHashMap<>();
+
+        /**
+         * 正在写入本分片的线程数
+         */
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private volatile boolean sealed;
+
+        private Pane(long index) {
+            this.index = index;
+        }
+    }
+}
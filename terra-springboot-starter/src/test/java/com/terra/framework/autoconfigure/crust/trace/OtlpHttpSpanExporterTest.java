@@ -0,0 +1,274 @@
+package com.terra.framework.autoconfigure.crust.trace;
+
+import com.sun.net.httpserver.HttpServer;
+import com.terra.framework.autoconfigure.bedrock.config.batch.BatchDrainCoordinator;
+import com.terra.framework.autoconfigure.bedrock.properties.batch.BatchProperties;
+import com.terra.framework.autoconfigure.crust.properties.TerraTraceProperties;
+import com.terra.framework.common.log.LogPattern;
+import com.terra.framework.common.util.concurrent.BatchProcessConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OtlpHttpSpanExporterTest {
+
+    private HttpServer collector;
+
+    /**
+     * 依次返回的状态码，取空后返回 200
+     */
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+
+    private final Queue<ReceivedRequest> requests = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void startCollector() throws IOException {
+        collector = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        collector.createContext("/v1/traces", exchange -> {
+            try (exchange) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                if ("gzip".equals(encoding)) {
+                    body = new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes();
+                }
+                requests.add(new ReceivedRequest(encoding, exchange.getRequestHeaders().getFirst("Content-Type"),
+                    exchange.getRequestHeaders().getFirst("Authorization"), body));
+                Integer status = statuses.poll();
+                exchange.sendResponseHeaders(status == null ? 200 : status, -1);
+            }
+        });
+        collector.start();
+    }
+
+    @AfterEach
+    void stopCollector() {
+        collector.stop(0);
+    }
+
+    @Test
+    @Timeout(30)
+    void exportsGzipCompressedProtobufRequest() throws Exception {
+        OtlpHttpSpanExporter exporter = newExporter(1);
+        exporter.setHeaders(Map.of("Authorization", "Bearer token"));
+        exporter.setResourceAttributes(Map.of("service.name", "order-service"));
+        exporter.afterPropertiesSet();
+        try {
+            TraceDataCollector.TraceData failed = span("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331", "/orders");
+            failed.setParentSpanId("00f067aa0ba902b7");
+            failed.setStatusCode(500);
+            failed.setError(true);
+            // 64 位追踪ID在高位补0，ID 不是十六进制的 span 被跳过
+            exporter.export(List.of(failed, span("00000000000004d2", "000000000000162e", "/health"),
+                span("not-hex", "x", "/ignored")));
+
+            awaitTrue(() -> exporter.getExportedCount() == 2);
+        } finally {
+            exporter.destroy();
+        }
+
+        // 缓冲区可能在两次放入之间到期刷写，span 分布在多个请求中
+        List<Map<Integer, List<Object>>> spans = new ArrayList<>();
+        for (ReceivedRequest request : requests) {
+            assertThat(request.contentEncoding()).isEqualTo("gzip");
+            assertThat(request.contentType()).isEqualTo("application/x-protobuf");
+            assertThat(request.authorization()).isEqualTo("Bearer token");
+
+            // ExportTraceServiceRequest.resource_spans -> ResourceSpans
+            Map<Integer, List<Object>> resourceSpans = decode(only(decode(request.body()), 1));
+            Map<Integer, List<Object>> attribute = decode(only(decode(only(resourceSpans, 1)), 1));
+            assertThat(string(attribute, 1)).isEqualTo("service.name");
+            assertThat(string(decode(only(attribute, 2)), 1)).isEqualTo("order-service");
+
+            Map<Integer, List<Object>> scopeSpans = decode(only(resourceSpans, 2));
+            assertThat(string(decode(only(scopeSpans, 1)), 1)).isEqualTo("com.terra.framework.trace");
+            for (Object span : scopeSpans.getOrDefault(2, List.of())) {
+                spans.add(decode((byte[]) span));
+            }
+        }
+        assertThat(spans).hasSize(2);
+
+        Map<Integer, List<Object>> first = spans.get(0);
+        assertThat(hex(first, 1)).isEqualTo("0af7651916cd43dd8448eb211c80319c");
+        assertThat(hex(first, 2)).isEqualTo("b7ad6b7169203331");
+        assertThat(hex(first, 4)).isEqualTo("00f067aa0ba902b7");
+        assertThat(string(first, 5)).isEqualTo("/orders");
+        assertThat(first.get(6)).containsExactly(2L);
+        assertThat(first.get(7)).containsExactly(TimeUnit.MILLISECONDS.toNanos(1_700_000_000_000L));
+        assertThat(first.get(8)).containsExactly(TimeUnit.MILLISECONDS.toNanos(1_700_000_000_012L));
+        assertThat(decode(only(first, 15)).get(3)).containsExactly(2L);
+
+        Map<Integer, List<Object>> second = spans.get(1);
+        assertThat(hex(second, 1)).isEqualTo("000000000000000000000000000004d2");
+        assertThat(second).doesNotContainKeys(4, 15);
+    }
+
+    @Test
+    @Timeout(30)
+    void retriesThrottledAndUnavailableResponses() throws Exception {
+        statuses.add(429);
+        statuses.add(503);
+        OtlpHttpSpanExporter exporter = newExporter(3);
+        exporter.afterPropertiesSet();
+        try {
+            exporter.export(List.of(span("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331", "/orders")));
+
+            awaitTrue(() -> exporter.getExportedCount() == 1);
+        } finally {
+            exporter.destroy();
+        }
+
+        assertThat(requests).hasSize(3);
+        assertThat(exporter.getRejectedCount()).isZero();
+    }
+
+    @Test
+    @Timeout(30)
+    void dropsRejectedRequestWithoutRetry() throws Exception {
+        statuses.add(400);
+        OtlpHttpSpanExporter exporter = newExporter(3);
+        exporter.afterPropertiesSet();
+        try {
+            exporter.export(List.of(span("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331", "/orders")));
+
+            awaitTrue(() -> exporter.getRejectedCount() == 1);
+            // 留出足够重试的时间，确认没有再次发送
+            Thread.sleep(200);
+        } finally {
+            exporter.destroy();
+        }
+
+        assertThat(requests).hasSize(1);
+        assertThat(exporter.getExportedCount()).isZero();
+    }
+
+    @Test
+    @Timeout(30)
+    void collectorDrainsIntoExporterBeforeExporterStops() {
+        TerraTraceProperties properties = new TerraTraceProperties();
+        properties.getCollector().setLogEnabled(false);
+        TraceDataCollector traceCollector = new TraceDataCollector(new LogPattern(), properties);
+        OtlpHttpSpanExporter exporter = newExporter(1);
+        traceCollector.setSpanExporter(exporter);
+        for (int i = 0; i < 50; i++) {
+            String spanId = String.format("%016x", i + 1);
+            traceCollector.recordRequestStart("0af7651916cd43dd8448eb211c80319c", spanId, null, "/orders", null, true);
+            traceCollector.recordRequestEnd("0af7651916cd43dd8448eb211c80319c", spanId, 200, 1);
+        }
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("traceDataCollector", traceCollector);
+        beanFactory.addBean("otlpHttpSpanExporter", exporter);
+        BatchDrainCoordinator coordinator = new BatchDrainCoordinator(beanFactory, new BatchProperties.DrainConfig());
+
+        coordinator.stop();
+
+        assertThat(traceCollector.getDrainPhase()).isGreaterThan(exporter.getDrainPhase());
+        assertThat(coordinator.getLastReports()).hasSize(2).allSatisfy(report -> assertThat(report.dropped()).isZero());
+        assertThat(exporter.getExportedCount()).isEqualTo(50);
+    }
+
+    private OtlpHttpSpanExporter newExporter(int maxAttempts) {
+        BatchProcessConfig config = new BatchProcessConfig(100, Duration.ofMillis(20));
+        config.getRetry().setMaxAttempts(maxAttempts);
+        config.getRetry().setInitialBackoff(Duration.ofMillis(10));
+        URI endpoint = URI.create("http://127.0.0.1:" + collector.getAddress().getPort() + "/v1/traces");
+        return new OtlpHttpSpanExporter(endpoint, config);
+    }
+
+    private static TraceDataCollector.TraceData span(String traceId, String spanId, String uri) {
+        TraceDataCollector.TraceData span = new TraceDataCollector.TraceData();
+        span.setTraceId(traceId);
+        span.setSpanId(spanId);
+        span.setUri(uri);
+        span.setStartTime(1_700_000_000_000L);
+        span.setEndTime(1_700_000_000_012L);
+        span.setDuration(12);
+        return span;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 按 protobuf 线格式解码一层字段：varint 与 fixed64 解为 Long，长度前缀字段保留原始字节
+     */
+    private static Map<Integer, List<Object>> decode(byte[] message) {
+        Map<Integer, List<Object>> fields = new LinkedHashMap<>();
+        int[] position = {0};
+        while (position[0] < message.length) {
+            long tag = readVarint(message, position);
+            Object value = switch ((int) (tag & 7)) {
+                case 0 -> readVarint(message, position);
+                case 1 -> {
+                    long fixed = 0;
+                    for (int i = 0; i < 8; i++) {
+                        fixed |= (message[position[0] + i] & 0xFFL) << (8 * i);
+                    }
+                    position[0] += 8;
+                    yield fixed;
+                }
+                case 2 -> {
+                    int length = (int) readVarint(message, position);
+                    byte[] bytes = new byte[length];
+                    System.arraycopy(message, position[0], bytes, 0, length);
+                    position[0] += length;
+                    yield bytes;
+                }
+                default -> throw new IllegalStateException("unexpected wire type: " + (tag & 7));
+            };
+            fields.computeIfAbsent((int) (tag >>> 3), field -> new ArrayList<>()).add(value);
+        }
+        return fields;
+    }
+
+    private static long readVarint(byte[] message, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = message[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] only(Map<Integer, List<Object>> fields, int field) {
+        assertThat(fields.get(field)).hasSize(1);
+        return (byte[]) fields.get(field).get(0);
+    }
+
+    private static String string(Map<Integer, List<Object>> fields, int field) {
+        return new String(only(fields, field), StandardCharsets.UTF_8);
+    }
+
+    private static String hex(Map<Integer, List<Object>> fields, int field) {
+        return HexFormat.of().formatHex(only(fields, field));
+    }
+
+    private record ReceivedRequest(String contentEncoding, String contentType, String authorization, byte[] body) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class B3SinglePropagatorTest {
+
+    private final B3SinglePropagator propagator = new B3SinglePropagator();
+
+    @Test
+    void samplingOnlyHeaderCarriesTheDecision() {
+        TraceContext denied = propagator.extract(Map.of("b3", "0"), Map::get);
+        assertThat(denied.isSamplingOnly()).isTrue();
+        assertThat(denied.sampled()).isFalse();
+
+        assertThat(propagator.extract(Map.of("b3", "1"), Map::get).sampled()).isTrue();
+        // debug 视为采样
+        assertThat(propagator.extract(Map.of("b3", "d"), Map::get).sampled()).isTrue();
+        assertThat(propagator.extract(Map.of("b3", "x"), Map::get)).isNull();
+    }
+
+    @Test
+    void fullHeaderIsExtracted() {
+        TraceContext trace = propagator.extract(
+                Map.of("b3", "80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1-0-05e3ac9a4f6e3b90"), Map::get);
+
+        assertThat(trace).isEqualTo(new TraceContext("80f198ee56343ba864fe8b2a57d3eff7", "e457b5a2e4d86bd1",
+                "05e3ac9a4f6e3b90", false, null));
+        assertThat(trace.isSamplingOnly()).isFalse();
+    }
+
+    @Test
+    void undecidedSamplingIsLeftOut() {
+        TraceContext trace = TraceContext.of("80f198ee56343ba864fe8b2a57d3eff7", "e457b5a2e4d86bd1", null);
+        Map<String, String> headers = new HashMap<>();
+
+        propagator.inject(trace, headers, Map::put);
+        new B3MultiPropagator().inject(trace, headers, Map::put);
+
+        assertThat(headers.get("b3")).isEqualTo("80f198ee56343ba864fe8b2a57d3eff7-e457b5a2e4d86bd1");
+        assertThat(headers).doesNotContainKey(B3MultiPropagator.SAMPLED);
+    }
+
+    @Test
+    void compositeAppliesSamplingOnlyDecisionToLaterContext() {
+        TracePropagator composite = TracePropagator.of(List.of(PropagationType.B3, PropagationType.B3_MULTI));
+        Map<String, String> headers = Map.of("b3", "0",
+                B3MultiPropagator.TRACE_ID, "80f198ee56343ba864fe8b2a57d3eff7",
+                B3MultiPropagator.SPAN_ID, "e457b5a2e4d86bd1");
+
+        TraceContext trace = composite.extract(headers, Map::get);
+
+        assertThat(trace.traceId()).isEqualTo("80f198ee56343ba864fe8b2a57d3eff7");
+        assertThat(trace.sampled()).isFalse();
+        assertThat(composite.extract(Map.of("b3", "0"), Map::get).isSamplingOnly()).isTrue();
+    }
+}
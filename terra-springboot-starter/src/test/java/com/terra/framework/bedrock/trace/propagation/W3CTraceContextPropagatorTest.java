@@ -0,0 +1,41 @@
+package com.terra.framework.bedrock.trace.propagation;
+
+import com.terra.framework.bedrock.trace.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class W3CTraceContextPropagatorTest {
+
+    private static final String TRACE_ID = "80f198ee56343ba864fe8b2a57d3eff7";
+
+    private static final String SPAN_ID = "e457b5a2e4d86bd1";
+
+    private final W3CTraceContextPropagator propagator = new W3CTraceContextPropagator();
+
+    @Test
+    void undecidedSamplingIsNotInjectedAsSampled() {
+        assertThat(inject(null)).isEqualTo("00-" + TRACE_ID + "-" + SPAN_ID + "-00");
+        assertThat(inject(false)).isEqualTo("00-" + TRACE_ID + "-" + SPAN_ID + "-00");
+        assertThat(inject(true)).isEqualTo("00-" + TRACE_ID + "-" + SPAN_ID + "-01");
+    }
+
+    @Test
+    void injectedContextIsExtractedBack() {
+        Map<String, String> headers = new HashMap<>();
+        propagator.inject(new TraceContext(TRACE_ID, SPAN_ID, null, true, "vendor=value"), headers, Map::put);
+
+        TraceContext trace = propagator.extract(headers, Map::get);
+
+        assertThat(trace).isEqualTo(new TraceContext(TRACE_ID, SPAN_ID, null, true, "vendor=value"));
+    }
+
+    private String inject(Boolean sampled) {
+        Map<String, String> headers = new HashMap<>();
+        propagator.inject(new TraceContext(TRACE_ID, SPAN_ID, null, sampled, null), headers, Map::put);
+        return headers.get(W3CTraceContextPropagator.TRACEPARENT);
+    }
+}
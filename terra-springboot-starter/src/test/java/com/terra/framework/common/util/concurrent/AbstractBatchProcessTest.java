@@ -0,0 +1,243 @@
+package com.terra.framework.common.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AbstractBatchProcessTest {
+
+    @Test
+    @Timeout(30)
+    void bisectionReportsOneFailureToAdaptiveController() {
+        BatchProcessConfig config = retryingConfig();
+        config.getRetry().setSplitOnFailure(true);
+        TestProcess process = new TestProcess(config, 799, new CountDownLatch(0));
+
+        for (int i = 0; i < 800; i++) {
+            process.process(i);
+        }
+        process.drain(Duration.ofSeconds(10));
+
+        assertThat(process.getInsertedCount()).isEqualTo(799);
+        assertThat(process.getFailedCount()).isEqualTo(1);
+        // 只有原批次最后一次尝试的失败收缩一次，重试与拆分出的子批次不反馈
+        assertThat(process.getRetriedCount()).isEqualTo(2);
+        assertThat(process.getAdaptiveController().getCurrentBatchSize()).isEqualTo(400);
+    }
+
+    @Test
+    @Timeout(30)
+    void retriesReportOneFailureToAdaptiveController() {
+        TestProcess process = new TestProcess(retryingConfig(), 799, new CountDownLatch(0));
+
+        for (int i = 0; i < 800; i++) {
+            process.process(i);
+        }
+        process.drain(Duration.ofSeconds(10));
+
+        assertThat(process.getRetriedCount()).isEqualTo(2);
+        assertThat(process.getFailedCount()).isEqualTo(800);
+        assertThat(process.getAdaptiveController().getCurrentBatchSize()).isEqualTo(400);
+    }
+
+    private static BatchProcessConfig retryingConfig() {
+        BatchProcessConfig config = new BatchProcessConfig(800, Duration.ofMinutes(1));
+        config.getAdaptive().setEnabled(true);
+        config.getRetry().setMaxAttempts(3);
+        config.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        config.getRetry().setJitter(0);
+        return config;
+    }
+
+    @Test
+    @Timeout(30)
+    void droppedOldestMessagesReleaseTheirWeight() {
+        BatchProcessConfig config = new BatchProcessConfig(16, Duration.ofMinutes(1));
+        config.setMaxBufferedMessages(16);
+        config.setMaxInFlightBatches(1);
+        config.setMaxBatchBytes(Long.MAX_VALUE);
+        config.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        // 第一个批次阻塞在写入中，之后的消息只能在缓冲区内淘汰最旧的
+        CountDownLatch gate = new CountDownLatch(1);
+        TestProcess process = new TestProcess(config, -1, gate);
+
+        for (int i = 0; i < 100; i++) {
+            process.process(i);
+        }
+
+        assertThat(process.getDroppedCount()).isPositive();
+        assertThat(process.getBufferedBytes()).isEqualTo(process.getBufferedCount() * (long) TestProcess.WEIGHT);
+        gate.countDown();
+        process.drain(Duration.ofSeconds(10));
+        assertThat(process.getBufferedBytes()).isZero();
+    }
+
+    @Test
+    @Timeout(30)
+    void rejectedLingerFlushDoesNotBlockTimerThread() throws Exception {
+        BatchRuntimeConfig runtimeConfig = new BatchRuntimeConfig();
+        runtimeConfig.setWorkerThreads(1);
+        runtimeConfig.setQueueCapacity(1);
+        BatchRuntime runtime = new BatchRuntime(runtimeConfig);
+        CountDownLatch gate = new CountDownLatch(1);
+        TestProcess process = new TestProcess(new BatchProcessConfig(100, Duration.ofMillis(20)), -1, gate);
+        process.setBatchRuntime(runtime);
+        try {
+            process.schedule();
+            // 第一批占用唯一的工作线程，第二批占满队列，第三批由时间轮线程刷写时被拒绝
+            for (int i = 1; i <= 3; i++) {
+                process.process(i);
+                int inFlight = i;
+                awaitTrue(() -> process.getInFlightBatches() == inFlight);
+            }
+            CountDownLatch fired = new CountDownLatch(1);
+            runtime.getTimer().newTimeout(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+            assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+            gate.countDown();
+            process.drain(Duration.ofSeconds(10));
+            assertThat(process.getInsertedCount()).isEqualTo(3);
+        } finally {
+            gate.countDown();
+            runtime.close();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void durableSpillIsBoundedByOverflowPolicy(@TempDir Path directory) throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        TestProcess process = new TestProcess(durableConfig(directory, OverflowPolicy.DROP_NEWEST), -1, gate, SERIALIZER);
+        try {
+            for (int i = 0; i < 100; i++) {
+                process.process(i);
+            }
+
+            // 在途16条、缓冲区16条、溢出8条，其余按 DROP_NEWEST 丢弃
+            assertThat(process.getBufferedCount()).isEqualTo(24);
+            assertThat(process.getDroppedCount()).isEqualTo(60);
+            gate.countDown();
+            process.drain(Duration.ofSeconds(10));
+            assertThat(process.getInsertedCount()).isEqualTo(40);
+            assertThat(process.inserted).doesNotContain(99);
+        } finally {
+            gate.countDown();
+            process.destroy();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void durableSpillDropsOldestSpilledMessage(@TempDir Path directory) throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        TestProcess process = new TestProcess(durableConfig(directory, OverflowPolicy.DROP_OLDEST), -1, gate, SERIALIZER);
+        try {
+            for (int i = 0; i < 100; i++) {
+                process.process(i);
+            }
+
+            assertThat(process.getBufferedCount()).isEqualTo(24);
+            assertThat(process.getDroppedCount()).isEqualTo(60);
+            gate.countDown();
+            process.drain(Duration.ofSeconds(10));
+            assertThat(process.getInsertedCount()).isEqualTo(40);
+            assertThat(process.inserted).contains(99).doesNotContain(32);
+        } finally {
+            gate.countDown();
+            process.destroy();
+        }
+    }
+
+    private static BatchProcessConfig durableConfig(Path directory, OverflowPolicy policy) {
+        BatchProcessConfig config = new BatchProcessConfig(16, Duration.ofMinutes(1));
+        config.setMaxBufferedMessages(16);
+        config.setMaxInFlightBatches(1);
+        config.setOverflowPolicy(policy);
+        config.getDurable().setEnabled(true);
+        config.getDurable().setDirectory(directory.toString());
+        config.getDurable().setSegmentSize(64 * 1024);
+        config.getDurable().setMaxSpilledMessages(8);
+        return config;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 批次中含有指定消息时写入失败，gate 打开前写入阻塞，每条消息估算为固定字节数
+     */
+    private static final MessageSerializer<Integer> SERIALIZER = new MessageSerializer<>() {
+        @Override
+        public byte[] serialize(Integer message) {
+            return ByteBuffer.allocate(4).putInt(0, message).array();
+        }
+
+        @Override
+        public Integer deserialize(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getInt();
+        }
+    };
+
+    private static final class TestProcess extends AbstractBatchProcess<Integer> {
+
+        private static final int WEIGHT = 10;
+
+        private final Queue<Integer> inserted = new ConcurrentLinkedQueue<>();
+
+        private final int poison;
+
+        private final CountDownLatch gate;
+
+        TestProcess(BatchProcessConfig config, int poison, CountDownLatch gate) {
+            super(config);
+            this.poison = poison;
+            this.gate = gate;
+        }
+
+        TestProcess(BatchProcessConfig config, int poison, CountDownLatch gate, MessageSerializer<Integer> serializer) {
+            super(config, serializer);
+            this.poison = poison;
+            this.gate = gate;
+        }
+
+        @Override
+        protected Boolean support(Integer message) {
+            return true;
+        }
+
+        @Override
+        protected int weigh(Integer message) {
+            return WEIGHT;
+        }
+
+        @Override
+        protected Boolean batchInsert(List<Integer> messages) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (messages.contains(poison)) {
+                throw new IllegalStateException("poison message: " + poison);
+            }
+            inserted.addAll(messages);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.terra.framework.common.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AbstractCoalescingBatchProcessTest {
+
+    @Test
+    @Timeout(30)
+    void fullBufferStillMergesBufferedKey() {
+        BatchProcessConfig config = new BatchProcessConfig(16, Duration.ofMinutes(1));
+        config.setMaxBufferedMessages(16);
+        config.setMaxInFlightBatches(1);
+        config.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        // 第一个批次阻塞在写入中，之后的16个键占满缓冲区
+        CountDownLatch gate = new CountDownLatch(1);
+        CounterProcess process = new CounterProcess(config, gate);
+        for (int key = 0; key < 32; key++) {
+            process.process(new Counter(key, 1));
+        }
+        assertThat(process.getBufferedCount()).isEqualTo(16);
+
+        // 已缓冲的键合并后不占用新的容量，新键按溢出策略丢弃
+        process.process(new Counter(20, 1));
+        process.process(new Counter(32, 1));
+
+        assertThat(process.getDroppedCount()).isEqualTo(1);
+        gate.countDown();
+        process.drain(Duration.ofSeconds(10));
+        assertThat(process.inserted).hasSize(32).contains(new Counter(20, 2)).doesNotContain(new Counter(32, 1));
+    }
+
+    private record Counter(int key, long count) {
+    }
+
+    private static final class CounterProcess extends AbstractCoalescingBatchProcess<Integer, Counter> {
+
+        private final Queue<Counter> inserted = new ConcurrentLinkedQueue<>();
+
+        private final CountDownLatch gate;
+
+        CounterProcess(BatchProcessConfig config, CountDownLatch gate) {
+            super(config);
+            this.gate = gate;
+        }
+
+        @Override
+        protected Integer coalesceKey(Counter message) {
+            return message.key();
+        }
+
+        @Override
+        protected Counter merge(Counter previous, Counter next) {
+            return new Counter(previous.key(), previous.count() + next.count());
+        }
+
+        @Override
+        protected Boolean support(Counter message) {
+            return true;
+        }
+
+        @Override
+        protected Boolean batchInsert(List<Counter> messages) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            inserted.addAll(messages);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.terra.framework.common.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashedWheelTimerTest {
+
+    private static HashedWheelTimer newTimer() {
+        return new HashedWheelTimer(Thread.ofPlatform().daemon(true).factory(), 1, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @Test
+    @Timeout(30)
+    void timeoutsScheduledWhileStartingAllFire() throws Exception {
+        int threads = 8;
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                HashedWheelTimer timer = newTimer();
+                CyclicBarrier barrier = new CyclicBarrier(threads);
+                CountDownLatch fired = new CountDownLatch(threads);
+                for (int i = 0; i < threads; i++) {
+                    callers.execute(() -> {
+                        try {
+                            barrier.await();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        timer.newTimeout(fired::countDown, 5, TimeUnit.MILLISECONDS);
+                    });
+                }
+                assertThat(fired.await(2, TimeUnit.SECONDS)).as("round %d", round).isTrue();
+                timer.close();
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void cancelledTimeoutIsReleasedBeforeItsSlotComesRound() throws Exception {
+        // 一圈约51秒，取消的任务若等到轮到其槽位才释放则超出等待时间
+        HashedWheelTimer timer = new HashedWheelTimer(Thread.ofPlatform().daemon(true).factory(), 100, TimeUnit.MILLISECONDS, 512);
+        try {
+            // 保持工作线程运转
+            timer.newTimeout(() -> { }, 10, TimeUnit.MINUTES);
+            List<WeakReference<Runnable>> tasks = new ArrayList<>();
+            List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                // 每次新建实例，不捕获变量的 lambda 会被复用而无法回收
+                Object marker = new Object();
+                Runnable task = marker::hashCode;
+                tasks.add(new WeakReference<>(task));
+                timeouts.add(timer.newTimeout(task, 10, TimeUnit.MINUTES));
+            }
+            Thread.sleep(300);
+            timeouts.forEach(HashedWheelTimer.Timeout::cancel);
+            timeouts.clear();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (tasks.stream().anyMatch(ref -> ref.get() != null) && System.nanoTime() < deadline) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertThat(tasks).allMatch(ref -> ref.get() == null);
+        } finally {
+            timer.close();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void cancelledTimeoutDoesNotRunAndOthersStillFire() throws Exception {
+        HashedWheelTimer timer = newTimer();
+        try {
+            AtomicInteger cancelledRuns = new AtomicInteger();
+            CountDownLatch fired = new CountDownLatch(50);
+            for (int i = 0; i < 100; i++) {
+                if (i % 2 == 0) {
+                    timer.newTimeout(cancelledRuns::incrementAndGet, 30, TimeUnit.MILLISECONDS).cancel();
+                } else {
+                    timer.newTimeout(fired::countDown, 30, TimeUnit.MILLISECONDS);
+                }
+            }
+            assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(50);
+            assertThat(cancelledRuns.get()).isZero();
+        } finally {
+            timer.close();
+        }
+    }
+}
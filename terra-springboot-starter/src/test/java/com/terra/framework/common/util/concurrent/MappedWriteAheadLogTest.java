@@ -0,0 +1,106 @@
+package com.terra.framework.common.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedWriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void emptyPayloadDoesNotHideLaterRecords() throws Exception {
+        try (MappedWriteAheadLog wal = new MappedWriteAheadLog(directory, SEGMENT_SIZE)) {
+            MappedWriteAheadLog.Position empty = wal.append(new byte[0]);
+            wal.append(bytes("after"));
+            assertThat(empty.read()).isEmpty();
+        }
+
+        assertThat(replayAll()).containsExactly("", "after");
+    }
+
+    @Test
+    void unpublishedSlotIsSkippedDuringReplay() throws Exception {
+        try (MappedWriteAheadLog wal = new MappedWriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("a"));
+            wal.append(bytes("b"));
+            wal.append(bytes("c"));
+        }
+        // 模拟崩溃时第二条记录已抢占位置、内容已写入但长度尚未发布：每条记录占 16 字节
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 16);
+        }
+
+        assertThat(replayAll()).containsExactly("a", "c");
+    }
+
+    @Test
+    void hugeLengthWordIsSkippedDuringReplay() throws Exception {
+        try (MappedWriteAheadLog wal = new MappedWriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("a"));
+            wal.append(bytes("b"));
+            wal.append(bytes("c"));
+        }
+        // 第二条记录的长度字段为接近 Integer.MAX_VALUE 的任意内容，与偏移相加会溢出为负数
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 4), 16);
+        }
+
+        assertThat(replayAll()).containsExactly("a", "c");
+    }
+
+    @Test
+    void acknowledgedSegmentIsDeletedAfterRoll() throws Exception {
+        try (MappedWriteAheadLog wal = new MappedWriteAheadLog(directory, SEGMENT_SIZE)) {
+            List<MappedWriteAheadLog.Position> positions = new ArrayList<>();
+            // 每条记录占 1024 字节，第五条写入时滚动到新段
+            for (int i = 0; i < 5; i++) {
+                positions.add(wal.append(new byte[1024 - 8]));
+            }
+            assertThat(wal.getSegmentCount()).isEqualTo(2);
+            Path first = segmentFiles().get(0);
+
+            positions.get(0).segment().acknowledge(4);
+
+            assertThat(wal.getSegmentCount()).isEqualTo(1);
+            assertThat(first).doesNotExist();
+            wal.force();
+            assertThat(positions.get(4).read()).hasSize(1024 - 8);
+        }
+    }
+
+    private List<String> replayAll() throws Exception {
+        List<String> replayed = new ArrayList<>();
+        try (MappedWriteAheadLog wal = new MappedWriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.replay(payload -> replayed.add(new String(payload, StandardCharsets.UTF_8)));
+            assertThat(wal.hasRecoveredSegments()).isFalse();
+        }
+        return replayed;
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+package com.terra.framework.common.util.concurrent.jdbc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JdbcBatchProcessTest {
+
+    private static final String SQL = "INSERT INTO t (a) VALUES (?)";
+
+    private DataSource dataSource;
+
+    private Connection connection;
+
+    private PreparedStatement statement;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+
+    private JdbcBatchProcess<String> process() {
+        return new JdbcBatchProcess<>(dataSource, SQL, (ps, index, row) -> ps.setString(index, row));
+    }
+
+    @Test
+    void commitsWhenConnectionIsNotAutoCommit() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        process().batchInsert(List.of("a", "b"));
+
+        verify(statement).executeBatch();
+        verify(connection).commit();
+        verify(connection, never()).setAutoCommit(anyBoolean());
+    }
+
+    @Test
+    void commitsNonAutoCommitConnectionWhenNotTransactional() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(false);
+        JdbcBatchProcess<String> process = process();
+        process.setTransactional(false);
+
+        process.batchInsert(List.of("a"));
+
+        verify(connection).commit();
+    }
+
+    @Test
+    void rollsBackNonAutoCommitConnectionOnFailure() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(false);
+        when(statement.executeBatch()).thenThrow(new SQLException("boom"));
+
+        assertThatThrownBy(() -> process().batchInsert(List.of("a"))).isInstanceOf(IllegalStateException.class);
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    void switchesAutoCommitOffAndBackForTransactionalBatch() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(true, false);
+
+        process().batchInsert(List.of("a"));
+
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    void keepsWriteFailureWhenRestoringAutoCommitFails() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(true, false);
+        SQLException writeFailure = new SQLException("boom");
+        SQLException restoreFailure = new SQLException("connection closed");
+        when(statement.executeBatch()).thenThrow(writeFailure);
+        doThrow(restoreFailure).when(connection).setAutoCommit(true);
+
+        assertThatThrownBy(() -> process().batchInsert(List.of("a")))
+            .isInstanceOf(IllegalStateException.class)
+            .cause()
+            .isSameAs(writeFailure);
+        assertThat(writeFailure.getSuppressed()).contains(restoreFailure);
+        verify(connection).rollback();
+    }
+
+    @Test
+    void leavesAutoCommitConnectionAloneWhenNotTransactional() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(true);
+        JdbcBatchProcess<String> process = process();
+        process.setTransactional(false);
+
+        process.batchInsert(List.of("a"));
+
+        verify(connection, never()).setAutoCommit(anyBoolean());
+        verify(connection, never()).commit();
+    }
+}
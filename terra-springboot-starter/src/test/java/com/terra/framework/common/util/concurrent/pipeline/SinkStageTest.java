@@ -0,0 +1,109 @@
+package com.terra.framework.common.util.concurrent.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SinkStageTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Timeout(10)
+    void callerRunsKeepsOrderWithParallelismOne() {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        ConcurrencyTracker tracker = new ConcurrencyTracker();
+        SinkStage<Integer> stage = new SinkStage<>("ordered", batch -> tracker.run(() -> written.addAll(batch)), 1, 1);
+        stage.setExecutor(executor);
+
+        for (int i = 0; i < 200; i++) {
+            stage.enqueue(List.of(i));
+        }
+        stage.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+
+        assertThat(written).hasSize(200).isSorted();
+        assertThat(tracker.max.get()).isEqualTo(1);
+        assertThat(stage.getCallerRunsCount()).isPositive();
+    }
+
+    @Test
+    @Timeout(10)
+    void callerRunsDoesNotExceedParallelism() {
+        ConcurrencyTracker tracker = new ConcurrencyTracker();
+        SinkStage<Integer> stage = new SinkStage<>("parallel", batch -> tracker.run(() -> { }), 2, 1);
+        stage.setExecutor(executor);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        stage.enqueue(List.of(i));
+                    }
+                }, producers));
+            }
+            futures.forEach(CompletableFuture::join);
+            stage.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            producers.shutdownNow();
+        }
+
+        assertThat(stage.getWrittenCount()).isEqualTo(200);
+        assertThat(tracker.max.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @Timeout(10)
+    void callerTakesOverDrainQueuedBehindItOnSharedExecutor() {
+        // 调用线程与排空任务共用单线程池，排空任务排在调用线程之后
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            SinkStage<Integer> stage = new SinkStage<>("shared", batch -> { }, 1, 1);
+            stage.setExecutor(single);
+            CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 100; i++) {
+                    stage.enqueue(List.of(i));
+                }
+            }, single).join();
+            stage.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+
+            assertThat(stage.getWrittenCount()).isEqualTo(100);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    private static final class ConcurrencyTracker {
+
+        private final AtomicInteger current = new AtomicInteger();
+
+        private final AtomicInteger max = new AtomicInteger();
+
+        void run(Runnable action) {
+            max.accumulateAndGet(current.incrementAndGet(), Math::max);
+            try {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                action.run();
+            } finally {
+                current.decrementAndGet();
+            }
+        }
+    }
+}